@@ -1,7 +1,11 @@
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -15,13 +19,27 @@ public class Algorithm {
     boolean timeFlag; // Flag to indicate if timing information should be reported
     boolean openFlag; // Flag to indicate if open list details should be printed
     int[][] goal; // The goal state configuration of the puzzle
-    String[] operator; // The set of possible moves (LEFT, UP, RIGHT, DOWN)
+    byte[] operator; // The set of possible moves (LEFT, UP, RIGHT, DOWN)
+    Heuristic heuristic = Algorithm::calculateHeuristic; // The heuristic used by the informed algorithms
+    String heuristicName; // Name of the heuristic if set by name, so a portfolio can give each search its own instance
+    long offHeapBudget = 256L << 20; // Bytes of native memory the off-heap A* may use
+    Path externalDir; // Directory for the files of the external search, or null for the temporary directory
+    long externalBuffer = 64L << 20; // Bytes of generated states the external search may buffer in memory
+    AtomicLong nodeBudget; // Nodes the searches sharing this budget may still keep in memory, or null for no limit
+    long reservedNodes; // Nodes this search has taken from nodeBudget
+    SearchCheckpoint checkpoint; // Periodic snapshots of A* and IDA*, or null for none
+    boolean historyOrdering; // Flag to order the moves of IDA* and DFBnB by a MoveHistory table
+    boolean firstSolutionFlag; // Flag to report the nodes generated before the first solution of IDA* and DFBnB
+    MovePruning pruning; // Rejects the redundant move sequences in DFID, IDA* and DFBnB, or null for none
+    LpaStarSearch planner; // The LPA* planner of the previous puzzle of the run, then of this one, or null
+    static final int GREEDY_NODES = 100_000; // Nodes the greedy search for the first bound of DFBnB may keep
 
     /**
      * Constructs an Algorithm instance configured with specific parameters for solving NxM puzzle games.
      *
      * @param algorithm  The name of the algorithm to be used for solving the puzzle. Supported algorithms
-     *                   include "DFID", "A*", "IDA*", and "DFBnB".
+     *                   include "DFID", "A*", "EPEA*", "A*-OFFHEAP", "EXTERNAL", "IDA*", "FRINGE", "DFBnB",
+     *                   "TABLE", "LPA*" and "PORTFOLIO".
      * @param timeFlag   Indicates whether the algorithm should record and report the time taken to find a solution.
      * @param openFlag   Indicates whether details of the open list should be printed during the algorithm's execution,
      *                   useful for debugging and analysis.
@@ -33,7 +51,7 @@ public class Algorithm {
         this.timeFlag = timeFlag;
         this.openFlag = openFlag;
         // Initialization of operators array with possible moves
-        this.operator = new String[]{"LEFT", "UP", "RIGHT", "DOWN"};
+        this.operator = new byte[]{Node.LEFT, Node.UP, Node.RIGHT, Node.DOWN};
         // Construction of the goal state configuration based on the puzzle's dimensions
         this.goal = new int[numOfRow][numOfCol];
         int count = 1;
@@ -54,6 +72,101 @@ public class Algorithm {
         return goal;
     }
 
+    /**
+     * Sets the heuristic used by the informed algorithms (A*, IDA*, DFBnB and their variants).
+     *
+     * @param heuristic The heuristic, see {@link Heuristic#forName(String)}.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Sets the heuristic used by the informed algorithms by its name.
+     *
+     * @param heuristicName The name of the heuristic, see {@link Heuristic#forName(String)}.
+     */
+    public void setHeuristic(String heuristicName) {
+        this.heuristic = Heuristic.forName(heuristicName);
+        this.heuristicName = heuristicName;
+    }
+
+    /**
+     * Sets the number of bytes of native memory the off-heap A* search may use for its open list
+     * and closed set.
+     *
+     * @param offHeapBudget The memory budget in bytes.
+     */
+    public void setOffHeapBudget(long offHeapBudget) {
+        this.offHeapBudget = offHeapBudget;
+    }
+
+    /**
+     * Sets where and with how much memory the external search runs.
+     *
+     * @param externalDir    The directory in which the search files are created, or null for the
+     *                       default temporary directory.
+     * @param externalBuffer The number of bytes of generated states buffered in memory before they
+     *                       are written to disk.
+     */
+    public void setExternalStorage(Path externalDir, long externalBuffer) {
+        this.externalDir = externalDir;
+        this.externalBuffer = externalBuffer;
+    }
+
+    /**
+     * Sets how IDA* and DFBnB order the moves of a node, and turns on the report of the number of
+     * nodes they generate before their first solution, to compare the orderings.
+     *
+     * @param ordering "h" to order the children by their estimated h (IDA*) or f (DFBnB), or
+     *                 "history" to order them by a {@link MoveHistory} table first.
+     * @throws IllegalArgumentException If the ordering is not supported.
+     */
+    public void setOrdering(String ordering) {
+        if (!ordering.equals("h") && !ordering.equals("history")) {
+            throw new IllegalArgumentException("Unknown ordering: " + ordering);
+        }
+        this.historyOrdering = ordering.equals("history");
+        this.firstSolutionFlag = true;
+    }
+
+    /**
+     * Turns on the pruning of redundant move sequences (see {@link MovePruning}) in DFID, IDA* and
+     * DFBnB. The automaton of the board dimension is built on first use.
+     *
+     * @param enabled true to prune the redundant move sequences.
+     */
+    public void setPruning(boolean enabled) {
+        this.pruning = enabled ? MovePruning.forBoard(this.goal.length, this.goal[0].length) : null;
+    }
+
+    /**
+     * Hands the LPA* planner of the previous puzzle of the run to this one, which reuses it if it
+     * is solved with LPA* from the same initial layout (see {@link LpaStarSearch}).
+     *
+     * @param planner The planner of the previous puzzle, or null.
+     */
+    public void setPlanner(LpaStarSearch planner) {
+        this.planner = planner;
+    }
+
+    /**
+     * Returns the LPA* planner of this puzzle for the next puzzle of the run, or null if this one
+     * was not solved with LPA*.
+     */
+    public LpaStarSearch getPlanner() {
+        return this.algorithm.equals("LPA*") ? this.planner : null;
+    }
+
+    /**
+     * Sets where A* and IDA* save their periodic snapshots and whether they continue from one.
+     *
+     * @param checkpoint The checkpoints of the search, or null for none.
+     */
+    public void setCheckpoint(SearchCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
     /**
      * Writes the final report, which includes the solution path,the total cost of the path solution,
      * the number of nodes that created and the elapsed time to solve the puzzle to an output file.
@@ -65,7 +178,19 @@ public class Algorithm {
      *                       the performance efficiency of the selected algorithm.
      */
     public void writeText(String finalReport, double elapsedTimeSec) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("output.txt"))) {
+        writeText(finalReport, elapsedTimeSec, false);
+    }
+
+    /**
+     * Writes the final report to the output file, either replacing its content or appending to it.
+     * Appending is used when an input file holds several puzzles.
+     *
+     * @param finalReport    The final report to be written to the file.
+     * @param elapsedTimeSec The time taken to achieve the result, measured in seconds.
+     * @param append         true to append the report to the output file, false to replace it.
+     */
+    public void writeText(String finalReport, double elapsedTimeSec, boolean append) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("output.txt", append))) {
             // Directly writing the final report to the file
             writer.write(finalReport + "\n");
             // Conditionally appending the elapsed time based on the timeFlag
@@ -79,6 +204,42 @@ public class Algorithm {
     }
 
 
+    /**
+     * Stops the search if its thread was interrupted, which happens when another search of a
+     * portfolio has already found the answer.
+     *
+     * @throws CancellationException If the thread was interrupted.
+     */
+    void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("search cancelled");
+        }
+    }
+
+    /**
+     * Takes one node from the shared node budget before a node is kept in memory.
+     *
+     * @throws IllegalStateException If the budget is exhausted.
+     */
+    void reserveNode() {
+        if (this.nodeBudget != null) {
+            this.reservedNodes++;
+            if (this.nodeBudget.decrementAndGet() < 0) {
+                throw new IllegalStateException("node budget exhausted");
+            }
+        }
+    }
+
+    /**
+     * Gives one node back to the shared node budget when a kept node is dropped.
+     */
+    void releaseNode() {
+        if (this.nodeBudget != null) {
+            this.reservedNodes--;
+            this.nodeBudget.incrementAndGet();
+        }
+    }
+
     /**
      * Checks if a given node's state matches the goal state of the puzzle.
      *
@@ -125,7 +286,7 @@ public class Algorithm {
         if (isGoal(n, goal)) {
             // If so, construct and return the solution details
             String finalPath = n.path.substring(0, n.path.length() - 1);
-            return finalPath + "\n" + "Num: "+ Node.totalNodes + "\n" + "Cost: " + n.g;
+            return finalPath + "\n" + "Num: "+ Node.totalNodes() + "\n" + "Cost: " + n.g;
         }else if(limited == 0) {
             // If the depth limit is reached, return "cutoff"
             return "cutoff";
@@ -140,10 +301,15 @@ public class Algorithm {
             }
             // Explore child nodes for each possible move
             for (int i = 0; i < this.operator.length; i++) {
+                int pruneState = this.pruning == null ? 0 : this.pruning.next(n.pruneState, this.operator[i]);
+                if (pruneState == MovePruning.PRUNED) {
+                    continue; // The move completes a redundant move sequence
+                }
                 // Attempt to move in the current direction
-                if (n.Move(this.operator[i])) {
+                Node child = n.Move(this.operator[i]);
+                if (child != null) {
+                    child.pruneState = pruneState;
                     // If the move is successful and the child node is not already visited
-                    Node child = n.children[i];
                     if (visited.containsKey(child.getKey())) {
                         continue;
                     }
@@ -190,12 +356,12 @@ public class Algorithm {
             result = Limited_DFS(startGame, goal, depth, visited);
             if (!result.equals("cutoff")) {
                 if(result.equals("no path"))
-                    return "no path" + "\n" + "Num: "+ Node.totalNodes +"\nCost:";
+                    return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
                 return result;
 
             }
         }
-        return "no path" + "\n" + "Num: "+ Node.totalNodes +"\nCost:";
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
     }
 
     /**
@@ -303,6 +469,8 @@ public class Algorithm {
      * of a puzzle game. A* search uses a best-first search strategy, prioritizing paths that appear to lead
      * most directly to the goal. It combines the cost to reach the node (g) and the heuristic estimate of
      * the cost to reach the goal from that node (h) to form a cost estimate (f = g + h) for each node.
+     * Duplicates are detected with a {@link DominanceStore}, so a child is only pruned if a generated
+     * node with the same board costs no more and leaves every white block as many moves.
      *
      * @param startGame The initial state of the puzzle, represented as a Node.
      * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
@@ -315,59 +483,354 @@ public class Algorithm {
         // Initialize priority queue with comparator based on the f value of nodes
         Comparator<Node> nodeComparator = Comparator.comparingDouble(n -> n.f);
         PriorityQueue<Node> openList = new PriorityQueue<>(nodeComparator);
-        Map<String, Node> closedList = new HashMap<>();
-        Map<String, Node> tmpList = new HashMap<>();
+        StateCodec codec = new StateCodec(startGame);
+        // Every generated state that no other one dominates, open or closed (see DominanceStore)
+        DominanceStore generated = new DominanceStore(codec);
 
-        // Initialize the starting node's cost values
-        startGame.g = 0;
-        startGame.h = calculateHeuristic(startGame, goal);
-        startGame.f = startGame.g + startGame.h;
-        openList.add(startGame);
-        tmpList.put(startGame.getKey(), startGame);
+        int resumed = this.checkpoint == null ? -1 : this.checkpoint.loadAStar(openList, generated);
+        if (resumed >= 0) {
+            // Continue from the lists of the last snapshot
+            for (int i = 0; i < resumed; i++) {
+                reserveNode();
+            }
+        } else {
+            openList.clear();
+            generated = new DominanceStore(codec);
+            // Initialize the starting node's cost values
+            startGame.g = 0;
+            startGame.h = this.heuristic.evaluate(startGame, goal);
+            startGame.f = startGame.g + startGame.h;
+            reserveNode();
+            openList.add(startGame);
+            generated.offer(startGame);
+        }
 
         // Main loop of A* search
         while (!openList.isEmpty()) {
+            checkCancelled();
+            if (this.checkpoint != null && this.checkpoint.due()) {
+                this.checkpoint.saveAStar(openList, generated);
+            }
             if(this.openFlag){
-                for(Map.Entry<String, Node> item: tmpList.entrySet()){
-                    System.out.println(item.getValue());
+                for (Node openNode : openList) {
+                    if (!openNode.isOut) {
+                        System.out.println(openNode);
+                    }
                 }
             }
             Node currentNode = openList.poll(); // Get node with lowest f value
-            tmpList.remove(currentNode.getKey());// Update tmpList like open list
+            if (currentNode.isOut) {
+                releaseNode();
+                continue; // A node that dominates this one was generated after it was stored
+            }
             // Check if current node is the goal state
             if (isGoal(currentNode, goal)) {
                 // Construct and return the solution path and metrics
                 String finalPath = currentNode.path.substring(0, currentNode.path.length() - 1);
-                return finalPath + "\n" + "Num: " + Node.totalNodes + "\n" + "Cost: " + currentNode.g;
+                return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + currentNode.g;
             }
-            // Add current node to closed list to avoid revisiting
-            closedList.put(currentNode.getKey(), currentNode);
             // Explore all possible moves from the current node
             for (int i = 0; i < this.operator.length; i++) {
-                if (currentNode.Move(this.operator[i])) { // Attempt to move in each direction
-                    Node child = currentNode.children[i];
-                    // Update child's heuristic and total cost values
-                    child.h = calculateHeuristic(child, goal);
-                    child.f = child.g + child.h;
-                    if((!closedList.containsKey(child.getKey())) && (!tmpList.containsKey(child.getKey()))){
-                        openList.add(child);
-                        tmpList.put(child.getKey(), child);
-                        // Add child to open list if not in closed list or already in open list with higher f
-                    }else if(tmpList.containsKey(child.getKey())){
-                        for (Node openNode : openList) {
-                            if (openNode.f > child.f) {
-                                openList.remove(openNode);
-                                tmpList.remove(openNode.getKey());
-                                openList.add(child);
-                                tmpList.put(child.getKey(), child);
-                                break;
-                            }
+                Node child = currentNode.Move(this.operator[i]); // Attempt to move in each direction
+                if (child == null || !generated.offer(child)) {
+                    continue; // No such move, or a stored node with the same board dominates the child
+                }
+                // Update child's heuristic and total cost values
+                child.h = this.heuristic.evaluate(child, goal);
+                child.f = child.g + child.h;
+                if (Double.isInfinite(child.f)) {
+                    continue; // The goal is not reachable from the child
+                }
+                reserveNode();
+                openList.add(child);
+            }
+        }
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+    }
+
+    /**
+     * Answers the puzzle from the exhaustive table of its board (see {@link StateSpaceTable}),
+     * following the best move of every state from the initial state to the goal state without any
+     * search. The table is built on the first puzzle of every board dimension and set of white blocks.
+     * Boards larger than StateSpaceTable.MAX_CELLS cells are solved with A* instead, and so are
+     * puzzles whose table path moves a white block more times than it may.
+     *
+     * @param startGame The initial state of the puzzle, represented as a Node.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     *
+     * @return A string that describes the solution path, including the sequence of moves to reach the goal
+     * state from the initial state, the number of nodes generated, and the cost of the solution. If
+     * no solution is found, the method returns "no path".
+     */
+    public String tableSearch(Node startGame, int[][] goal) {
+        int numOfRow = startGame.board.length;
+        int numOfCol = startGame.board[0].length;
+        if (numOfRow * numOfCol > StateSpaceTable.MAX_CELLS) {
+            return aStar(startGame, goal);
+        }
+        int[] priceOfMove = new int[numOfRow * numOfCol];
+        for (Block[] blocks : startGame.board) {
+            for (Block block : blocks) {
+                priceOfMove[block.getValue()] = block.getPriceOfMove();
+            }
+        }
+        StateSpaceTable table = StateSpaceTable.forBoard(numOfRow, numOfCol, priceOfMove);
+        if (table.cost(startGame) < 0) {
+            return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+        }
+        Node current = startGame;
+        for (byte move = table.bestMove(current); move != Node.NONE; move = table.bestMove(current)) {
+            Node next = current.Move(move);
+            if (next == null) {
+                // The table does not know the remaining moves of the white blocks, search with them
+                return aStar(startGame, goal);
+            }
+            current = next;
+        }
+        if (current.path.isEmpty()) {
+            return "\nNum: " + Node.totalNodes() + "\nCost: 0";
+        }
+        String finalPath = current.path.substring(0, current.path.length() - 1);
+        return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + current.g;
+    }
+
+    /**
+     * Implements Enhanced Partial Expansion A* (EPEA*). Like A*, but a node is expanded only into
+     * the children whose f value equals the stored f value of the node, and is then put back into
+     * the open list with the smallest larger child f value instead of being closed. Children whose
+     * f value is above the optimal cost are therefore never generated or stored, which matters here
+     * because moving a red block that goes the wrong way raises f by 60 at once.
+     *
+     * The change of f of every move is asked from the heuristic first (see
+     * {@link Heuristic#deltaF(Node, int)}), so with an exact operator selection function the
+     * children are not built at all until they are needed. Other heuristics fall back to building
+     * and evaluating every child at every expansion of the node and keeping only the matching ones
+     * (Partial Expansion A*), which still keeps the open list small.
+     *
+     * @param startGame The initial state of the puzzle, represented as a Node.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     *
+     * @return A string that describes the solution path, including the sequence of moves to reach the goal
+     * state from the initial state, the number of nodes generated, and the cost of the solution. If
+     * no solution is found, the method returns "no path".
+     */
+    public String epeaStar(Node startGame, int[][] goal) {
+        // The open list is ordered by the stored f value, which starts as g + h and grows with every
+        // partial expansion of the node
+        PriorityQueue<Node> openList = new PriorityQueue<>(Comparator.comparingDouble(n -> n.f));
+        // Every generated state that no other one dominates (see DominanceStore)
+        DominanceStore generated = new DominanceStore(new StateCodec(startGame));
+
+        startGame.g = 0;
+        startGame.h = this.heuristic.evaluate(startGame, goal);
+        startGame.f = startGame.g + startGame.h;
+        if (Double.isInfinite(startGame.f)) {
+            return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+        }
+        reserveNode();
+        openList.add(startGame);
+        generated.offer(startGame);
+
+        while (!openList.isEmpty()) {
+            checkCancelled();
+            if(this.openFlag){
+                for (Node openNode : openList) {
+                    System.out.println(openNode);
+                }
+            }
+            Node currentNode = openList.poll();
+            if (currentNode.isOut) {
+                releaseNode();
+                continue; // A node that dominates this one was generated after it was stored
+            }
+            if (isGoal(currentNode, goal)) {
+                String finalPath = currentNode.path.substring(0, currentNode.path.length() - 1);
+                return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + currentNode.g;
+            }
+            double storedF = currentNode.f;
+            double staticF = currentNode.g + currentNode.h;
+            double nextF = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < this.operator.length; i++) {
+                int target = currentNode.canMove(this.operator[i]);
+                if (target < 0) {
+                    continue;
+                }
+                double deltaF = this.heuristic.deltaF(currentNode, target);
+                Node child = null;
+                double childF = staticF + deltaF;
+                if (Double.isNaN(deltaF)) {
+                    // No operator selection function, build the child to find its f value
+                    child = currentNode.Move(this.operator[i]);
+                    child.h = this.heuristic.evaluate(child, goal);
+                    childF = child.g + child.h;
+                }
+                if (childF > storedF) {
+                    nextF = Math.min(nextF, childF); // Generated by a later expansion of this node
+                    continue;
+                }
+                if (childF < storedF) {
+                    continue; // Generated by an earlier expansion of this node
+                }
+                if (child == null) {
+                    child = currentNode.Move(this.operator[i]);
+                    child.h = childF - child.g;
+                }
+                child.f = childF;
+                if (generated.offer(child)) {
+                    reserveNode();
+                    openList.add(child);
+                }
+            }
+            if (Double.isInfinite(nextF)) {
+                releaseNode(); // Every child was generated, the node is closed
+            } else {
+                currentNode.f = nextF;
+                openList.add(currentNode);
+            }
+        }
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+    }
+
+    /**
+     * Implements the A* search algorithm with its open list and closed set kept outside the Java heap.
+     * Every generated state is stored as a fixed-width record in an {@link OffHeapNodeStore}, and only
+     * the node being expanded and its children live on the heap. This keeps the garbage collector out
+     * of very large searches. The memory used by the store is bounded by offHeapBudget and is handed
+     * back as soon as the search ends. With the WMD heuristic the children of every expansion are
+     * evaluated as one batch on their packed states (see {@link BatchHeuristic}).
+     *
+     * @param startGame The initial state of the puzzle, represented as a Node.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     *
+     * @return A string that describes the solution path, including the sequence of moves to reach the goal
+     * state from the initial state, the number of nodes generated, and the cost of the solution. If
+     * no solution is found, the method returns "no path", and if the memory budget is exhausted, the
+     * error message of the store instead.
+     */
+    public String aStarOffHeap(Node startGame, int[][] goal) {
+        StateCodec codec = new StateCodec(startGame);
+        byte[] state = new byte[codec.stateSize];
+        // The packed children of one expansion, with their costs, heuristic values and moves
+        byte[] children = new byte[this.operator.length * codec.stateSize];
+        int[] childG = new int[this.operator.length];
+        double[] childH = new double[this.operator.length];
+        byte[] childMove = new byte[this.operator.length];
+        // The weighted Manhattan Distance is evaluated on the packed children directly
+        BatchHeuristic batch = this.heuristic instanceof WeightedHeuristic
+                && !((WeightedHeuristic) this.heuristic).hasLinearConflict() ? BatchHeuristic.create(codec) : null;
+        try (OffHeapNodeStore store = new OffHeapNodeStore(codec.stateSize, this.offHeapBudget)) {
+            // Initialize the starting node's cost values
+            startGame.g = 0;
+            startGame.h = this.heuristic.evaluate(startGame, goal);
+            startGame.f = startGame.g + startGame.h;
+            codec.pack(startGame, state, 0);
+            store.push(store.add(state, 0, startGame.f, -1, Node.NONE));
+
+            // Main loop of A* search
+            int current;
+            while ((current = store.poll()) >= 0) {
+                store.readState(current, state);
+                byte move = store.lastMove(current);
+                Node currentNode = codec.unpack(state, 0, store.g(current), move);
+                if (this.openFlag) {
+                    System.out.println(currentNode);
+                }
+                // Check if current node is the goal state
+                if (isGoal(currentNode, goal)) {
+                    String finalPath = offHeapPath(store, codec, current);
+                    return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + currentNode.g;
+                }
+                // Add current node to closed set to avoid revisiting
+                store.markClosed(current);
+                // Pack the children first, so they can be evaluated as one batch
+                int count = 0;
+                for (int i = 0; i < this.operator.length; i++) {
+                    Node child = currentNode.Move(this.operator[i]);
+                    if (child != null) {
+                        codec.pack(child, children, count * codec.stateSize);
+                        childG[count] = child.g;
+                        childMove[count] = (byte) i;
+                        if (batch == null) {
+                            childH[count] = this.heuristic.evaluate(child, goal);
                         }
+                        count++;
+                    }
+                }
+                if (batch != null) {
+                    batch.evaluate(children, count, childH);
+                }
+                for (int k = 0; k < count; k++) {
+                    double f = childG[k] + childH[k];
+                    if (Double.isInfinite(f)) {
+                        continue; // The goal is not reachable from the child
+                    }
+                    System.arraycopy(children, k * codec.stateSize, state, 0, codec.stateSize);
+                    int found = store.find(state);
+                    if (found < 0) {
+                        store.push(store.add(state, childG[k], f, current, childMove[k]));
+                    } else if (!store.isClosed(found) && store.f(found) > f) {
+                        // A cheaper path to an open state, the old heap entry becomes outdated
+                        store.update(found, childG[k], f, current, childMove[k]);
+                        store.push(found);
                     }
                 }
             }
+        } catch (IllegalStateException e) {
+            // Running out of the budget proves nothing about the puzzle, so it is not reported as "no path"
+            System.err.println("An error occurred: " + e.getMessage());
+            return e.getMessage() + "\n" + "Num: " + Node.totalNodes() + "\nCost:";
+        }
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+    }
+
+    /**
+     * Rebuilds the solution path of the off-heap A* search by following the parent records from the
+     * given record back to the initial state. The moved block of every step is the block that took
+     * the place of the empty space of the parent state.
+     *
+     * @param store  The store holding the records of the search.
+     * @param codec  The codec used to pack the states of the search.
+     * @param record The record of the last state of the path.
+     * @return The path, in the same format as the path of a Node, without the trailing dash.
+     */
+    private String offHeapPath(OffHeapNodeStore store, StateCodec codec, int record) {
+        byte[] state = new byte[codec.stateSize];
+        byte[] parentState = new byte[codec.stateSize];
+        List<String> steps = new ArrayList<>();
+        for (int parent = store.parent(record); parent >= 0; record = parent, parent = store.parent(record)) {
+            store.readState(record, state);
+            store.readState(parent, parentState);
+            int movedBlock = state[codec.blankPosition(parentState, 0)] & 0xFF;
+            steps.add(movedBlock + Node.PATH_SUFFIX[store.lastMove(record)]);
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            path.append(steps.get(i));
         }
-        return "no path" + "\n" + "Num: "+ Node.totalNodes +"\nCost:";
+        return path.length() == 0 ? "" : path.substring(0, path.length() - 1);
+    }
+
+    /**
+     * Implements an external-memory A* search for state spaces that do not fit in memory. The open
+     * list is kept on disk as sorted run files, and duplicates are removed by merging each expanded
+     * layer against the earlier ones. See {@link ExternalSearch} for the details.
+     *
+     * @param startGame The initial state of the puzzle, represented as a Node.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     *
+     * @return A string that describes the solution path, including the sequence of moves to reach the goal
+     * state from the initial state, the number of nodes generated, and the cost of the solution. If
+     * no solution is found, or the search files cannot be written, the method returns "no path".
+     */
+    public String externalSearch(Node startGame, int[][] goal) {
+        try {
+            Path dir = this.externalDir == null ? Files.createTempDirectory("puzzle")
+                    : Files.createTempDirectory(this.externalDir, "puzzle");
+            return new ExternalSearch(this, startGame, dir, this.externalBuffer).solve(startGame, goal);
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+        }
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
     }
 
     /**
@@ -384,63 +847,123 @@ public class Algorithm {
      * no solution is found within the iterative deepening thresholds, the method returns "no path".
      */
     public String idaStar(Node startGame, int[][] goal) {
-        Map<String, Node> H = new HashMap<>();
-        Stack<Node> L = new Stack<>();
-        startGame.h = calculateHeuristic(startGame, goal);
+        Map<String, Node> H = new HashMap<>(); // The nodes on the current path, for loop avoidance
+        Deque<Successors> L = new ArrayDeque<>(); // One lazy successor iterator per level of the path
+        startGame.h = this.heuristic.evaluate(startGame, goal);
+        if (Double.isInfinite(startGame.h)) {
+            return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
+        }
         double threshold = startGame.h;
+        MoveHistory history = this.historyOrdering ? new MoveHistory(goal.length * goal[0].length, true) : null;
+        SearchCheckpoint.IdaStarProgress progress = this.checkpoint == null ? null : this.checkpoint.loadIdaStar(history);
+        if (progress != null) {
+            threshold = progress.threshold;
+        }
         while (threshold != Double.MAX_VALUE) {
             double minF = Double.MAX_VALUE;
-            startGame.setOut(false);
-            L.push(startGame);
+            int iterationStart = Node.totalNodes(); // Nodes generated before this iteration
+            if (history != null && progress == null) {
+                history.publish(); // Order this iteration by what the previous ones learned
+            }
+            reserveNode();
+            L.push(startGame.successors(Successors.BY_H, history, this.pruning));
             H.put(startGame.getKey(), startGame);
+            if (progress != null) {
+                // Continue the iteration of the last snapshot from its path
+                minF = progress.minF;
+                iterationStart = progress.iterationStart;
+                replayPath(progress.taken, L, H, goal, history);
+                Node.restoreTotalNodes(progress.nodes);
+                progress = null;
+            }
             while (!L.isEmpty()) {
+                checkCancelled();
+                if (this.checkpoint != null && this.checkpoint.due()) {
+                    this.checkpoint.saveIdaStar(threshold, minF, iterationStart, L, history);
+                }
                 if(this.openFlag){
                     for(Map.Entry<String, Node> item: H.entrySet()){
                         System.out.println(item.getValue());
                     }
                 }
-                Node currentNode = L.pop();
-                if (currentNode.isOut()) {
-                    H.remove(currentNode.getKey());
-                }else {
-                    currentNode.setOut(true);
-                    L.push(currentNode);
-                    for (int i = 0; i < this.operator.length; i++) {
-                        if (currentNode.Move(this.operator[i])) {
-                            Node child = currentNode.children[i];
-                            child.h = calculateHeuristic(child, goal);
-                            child.f = child.g + child.h;
-                            if(child.f > threshold){
-                                minF = Math.min(minF, child.f);
-                                continue;
-                            }
-                            if((H.containsKey(child.getKey())) && (H.get(child.getKey()).isOut())){
-                                continue;
-                            }
-                            if((H.containsKey(child.getKey())) && (!H.get(child.getKey()).isOut())){
-                                if(H.get(child.getKey()).f > child.f){
-                                    L.remove(H.get(child.getKey()));
-                                    H.remove(child.getKey());
-                                }else{
-                                    continue;
-                                }
-                            }
-                            if(isGoal(child, goal)){
-                                String finalPath = child.path.substring(0, child.path.length() - 1);
-                                return finalPath + "\n" + "Num: " + Node.totalNodes + "\n" + "Cost: " + child.g;
-                            }
-                            L.push(child);
-                            H.put(child.getKey(), child);
-                        }
+                Successors successors = L.peek();
+                if (!successors.hasNext()) {
+                    // All the children were explored, backtrack
+                    L.pop();
+                    H.remove(successors.parent.getKey());
+                    releaseNode();
+                    continue;
+                }
+                // Build only the next child, later siblings wait until it is explored
+                Node child = successors.next();
+                child.h = this.heuristic.evaluate(child, goal, threshold - child.g);
+                child.f = child.g + child.h;
+                if(child.f > threshold){
+                    minF = Math.min(minF, child.f);
+                    if (history != null) {
+                        history.cutoff(successors);
                     }
+                    continue;
+                }
+                if(H.containsKey(child.getKey())){
+                    continue;
+                }
+                if (history != null) {
+                    history.success(successors);
+                }
+                if(isGoal(child, goal)){
+                    String finalPath = child.path.substring(0, child.path.length() - 1);
+                    return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + child.g
+                            + firstSolution(Node.totalNodes() - iterationStart);
                 }
+                reserveNode();
+                L.push(child.successors(Successors.BY_H, history, this.pruning));
+                H.put(child.getKey(), child);
             }
             threshold = minF; // Update threshold for the next iteration
         }
-        return "no path" + "\n" + "Num: "+ Node.totalNodes +"\nCost:";
+        return "no path" + "\n" + "Num: "+ Node.totalNodes() +"\nCost:";
     }
 
 
+    /**
+     * Rebuilds the path of an IDA* iteration from the number of children taken at every level, as
+     * saved by SearchCheckpoint.saveIdaStar. The children before the last one taken at every level
+     * were explored before the snapshot and are skipped; the last one taken is the next node of the
+     * path. The children are built in the same order, so the same path is found again.
+     *
+     * @param taken   The number of children taken at every level, the root first.
+     * @param L       The successor iterators of the path, holding the root's one.
+     * @param H       The nodes of the path, holding the root.
+     * @param goal    A 2D integer array representing the goal state configuration of the puzzle.
+     * @param history The history table the moves are ordered by, or null.
+     */
+    private void replayPath(int[] taken, Deque<Successors> L, Map<String, Node> H, int[][] goal, MoveHistory history) {
+        for (int level = 0; level < taken.length; level++) {
+            Successors successors = L.peek();
+            Node child = null;
+            for (int i = 0; i < taken[level]; i++) {
+                child = successors.next();
+            }
+            if (level == taken.length - 1) {
+                break; // The children taken at the deepest level were all explored
+            }
+            child.h = this.heuristic.evaluate(child, goal);
+            child.f = child.g + child.h;
+            reserveNode();
+            L.push(child.successors(Successors.BY_H, history, this.pruning));
+            H.put(child.getKey(), child);
+        }
+    }
+
+    /**
+     * Returns the line reporting the number of nodes generated before the first solution, or an
+     * empty string if it was not asked for (see setOrdering).
+     */
+    private String firstSolution(long nodes) {
+        return this.firstSolutionFlag ? "\n" + "First solution: " + nodes : "";
+    }
+
     /**
      * Calculates an initial upper bound for a problem based on the factorial of a given number. This method
      * is designed to set a limit or an initial estimate for problems where the solution space grows factorial
@@ -476,12 +999,62 @@ public class Algorithm {
     }
 
 
+    /**
+     * Finds a first solution by a greedy best-first search on h, which keeps a closed set and so never
+     * expands a state twice. It is not optimal, but its cost is a real upper bound for DFBnB, which
+     * then does not depend on its own first dive under the factorial bound to find one.
+     *
+     * @param startGame The initial state of the puzzle, represented as a Node.
+     * @param goal A 2D integer array representing the goal state configuration of the puzzle.
+     * @return The goal node reached, or null if none was found among GREEDY_NODES nodes.
+     */
+    Node greedySolution(Node startGame, int[][] goal) {
+        PriorityQueue<Node> openList = new PriorityQueue<>(
+                Comparator.comparingDouble((Node n) -> n.h).thenComparingInt(n -> n.g));
+        Set<String> closedList = new HashSet<>();
+        openList.add(startGame);
+        reserveNode();
+        int kept = 1; // Nodes reserved from the node budget
+        try {
+            while (!openList.isEmpty() && kept < GREEDY_NODES) {
+                checkCancelled();
+                Node currentNode = openList.poll();
+                if (!closedList.add(currentNode.getKey())) {
+                    continue;
+                }
+                for (Successors successors = currentNode.successors(Successors.FIXED); successors.hasNext(); ) {
+                    Node child = successors.next();
+                    if (closedList.contains(child.getKey())) {
+                        continue;
+                    }
+                    if (isGoal(child, goal)) {
+                        return child;
+                    }
+                    child.h = this.heuristic.evaluate(child, goal);
+                    if (child.h == Double.POSITIVE_INFINITY) {
+                        continue; // The goal cannot be reached from a dead state
+                    }
+                    child.f = child.g + child.h;
+                    openList.add(child);
+                    reserveNode();
+                    kept++;
+                }
+            }
+            return null;
+        } finally {
+            for (; kept > 0; kept--) {
+                releaseNode();
+            }
+        }
+    }
+
     /**
      * Implements the Depth-First Branch-and-Bound (DFBnB) algorithm to find an optimal solution
      * path for the puzzle game. DFBnB is a search strategy that uses depth-first traversal combined
      * with pruning of branches that exceed a certain cost threshold, known as the upper bound. This
      * approach ensures that the search space is efficiently explored while discarding paths that are
-     * too costly.
+     * too costly. The upper bound starts at the cost of a greedy solution (see greedySolution), or
+     * at the factorial bound if none is found, and the nodes of the greedy search count as generated.
      *
      * @param startGame The initial state of the puzzle, represented as a Node.
      * @param goal A 2D integer array representing the goal state configuration of the puzzle.
@@ -491,73 +1064,75 @@ public class Algorithm {
      *         solution. If no solution is found, the method returns "no path".
      */
     public String dfbNb(Node startGame, int[][] goal) {
-        Stack<Node> L = new Stack<>();
-        Map<Node, Boolean> H = new HashMap<>();
-        startGame.h = calculateHeuristic(startGame, goal);
+        Deque<Successors> L = new ArrayDeque<>(); // One lazy successor iterator per level of the path
+        Set<String> H = new HashSet<>(); // The keys of the nodes on the current path
+        startGame.h = this.heuristic.evaluate(startGame, goal);
         startGame.f = startGame.g + startGame.h;
-        L.push(startGame);
-        H.put(startGame, false); // False indicates the node is not "out"
+        MoveHistory history = this.historyOrdering ? new MoveHistory(goal.length * goal[0].length, false) : null;
+        reserveNode();
+        L.push(startGame.successors(this.heuristic, goal, history, this.pruning));
+        H.add(startGame.getKey());
 
         long resultCost = calculateInitialUpperBound(startGame.board.length * startGame.board[0].length -1);
         long totalNodesCreated = 0; // Start node is already created
+        long firstSolutionNodes = 0; // Nodes created before the first solution was found
         String resultPath =  "no path";
+        long greedyStart = Node.totalNodes();
+        Node greedy = greedySolution(startGame, goal);
+        totalNodesCreated += Node.totalNodes() - greedyStart;
+        if (greedy != null) {
+            firstSolutionNodes = totalNodesCreated;
+            resultCost = greedy.g; // Only the strictly cheaper solutions are searched for
+            resultPath = greedy.path;
+        }
 
         while (!L.isEmpty()) {
-            Node currentNode = L.pop();
-            if (H.get(currentNode)) {
-                H.remove(currentNode); // Remove if marked as "out"
-            } else {
-                currentNode.setOut(true);
-                L.push(currentNode);
-                H.put(currentNode, true);
-
-                List<Node> N = new ArrayList<>();
-                for (int i = 0; i < this.operator.length; i++) {
-                    if (currentNode.Move(this.operator[i])) {
-                        Node child = currentNode.children[i];
-                        totalNodesCreated++; // Increment for every new node created
-                        child.h = calculateHeuristic(child, goal);
-                        child.f = child.g + child.h;
-
-                        if (child.f < resultCost) { // Consider only if cost is below the current result
-                            N.add(child);
-                            if(this.openFlag){
-                                System.out.println(child);
-                            }
-                        }
-                    }
+            checkCancelled();
+            Successors successors = L.peek();
+            if (!successors.hasNext()) {
+                // All the children were explored, backtrack
+                L.pop();
+                H.remove(successors.parent.getKey());
+                releaseNode();
+                continue;
+            }
+            // Children come in order of f and are handed out one at a time, so a bound found in the
+            // subtree of a child already prunes its later siblings
+            Node child = successors.next();
+            totalNodesCreated++; // Increment for every new node created
+            if (!successors.lastEvaluated()) {
+                child.h = this.heuristic.evaluate(child, goal, Math.nextDown((double) (resultCost - child.g)));
+                child.f = child.g + child.h;
+            }
+            if (child.f >= resultCost || H.contains(child.getKey())) {
+                if (history != null && child.f >= resultCost) {
+                    history.cutoff(successors);
                 }
-
-                // Sort and prune the list of children based on their f values
-                N.sort(Comparator.comparingDouble(node -> node.f));
-                List<Node> toAdd = new ArrayList<>();
-                for (Node child : N) {
-                    if (child.f >= resultCost) {
-                        break; // Stop adding children if their cost exceeds the current best
-                    }
-                    if (isGoal(child, goal)) {
-                        resultCost = child.g; // Update the best cost
-                        resultPath = child.path; // Update the result path
-                    } else {
-                        toAdd.add(child);
-                    }
+                continue; // Prune children whose cost exceeds the current best, and loops
+            }
+            if(this.openFlag){
+                System.out.println(child);
+            }
+            if (isGoal(child, goal)) {
+                if (resultPath.equals("no path")) {
+                    firstSolutionNodes = totalNodesCreated;
                 }
-
-                // Add remaining nodes in reverse order for depth-first exploration
-                Collections.reverse(toAdd);
-                for (Node child : toAdd) {
-                    if (!H.containsKey(child) || (H.get(child) != null && !H.get(child))) {
-                        L.push(child);
-                        H.put(child, false);
-                    }
+                resultCost = child.g; // Update the best cost
+                resultPath = child.path; // Update the result path
+                if (history != null) {
+                    history.solution(L); // The moves of the path lead to a better solution
                 }
+            } else {
+                reserveNode();
+                L.push(child.successors(this.heuristic, goal, history, this.pruning));
+                H.add(child.getKey());
             }
         }
 
         // Construct the final result string
         if (!resultPath.equals("no path")) {
             String tmp =resultPath.substring(0, resultPath.length() - 1);
-            resultPath = tmp + "\nNum: " + totalNodesCreated + "\nCost: " + resultCost;
+            resultPath = tmp + "\nNum: " + totalNodesCreated + "\nCost: " + resultCost + firstSolution(firstSolutionNodes);
         }
         return resultPath;
     }
@@ -565,7 +1140,8 @@ public class Algorithm {
      * Initiates the puzzle-solving process using the algorithm specified at the instance level.
      * This method serves as a central dispatcher that selects and executes one of the supported
      * search algorithms based on the 'algorithm' field's value. It supports Depth-First Iterative
-     * Deepening (DFID), A*, Iterative Deepening A* (IDA*), and Depth-First Branch-and-Bound (DFBnB).
+     * Deepening (DFID), A*, Iterative Deepening A* (IDA*), and Depth-First Branch-and-Bound (DFBnB),
+     * or races several of them against each other (PORTFOLIO, see {@link PortfolioSearch}).
      *
      * @param startGame The initial state of the puzzle represented as a Node.
      *
@@ -581,10 +1157,26 @@ public class Algorithm {
             return dfid(startGame, goal);
         else if (this.algorithm.equals("A*"))
             return aStar(startGame, goal);
+        else if (this.algorithm.equals("LPA*")) {
+            this.planner = LpaStarSearch.forPuzzle(this.planner, startGame);
+            return this.planner.solve(this, startGame, goal);
+        }
+        else if (this.algorithm.equals("TABLE"))
+            return tableSearch(startGame, goal);
+        else if (this.algorithm.equals("EPEA*"))
+            return epeaStar(startGame, goal);
+        else if (this.algorithm.equals("A*-OFFHEAP"))
+            return aStarOffHeap(startGame, goal);
+        else if (this.algorithm.equals("EXTERNAL"))
+            return externalSearch(startGame, goal);
         else if (this.algorithm.equals("IDA*"))
             return idaStar(startGame, goal);
+        else if (this.algorithm.equals("FRINGE"))
+            return new FringeSearch(this).solve(startGame, goal);
         else if (this.algorithm.equals("DFBnB"))
             return dfbNb(startGame, goal);
+        else if (this.algorithm.equals("PORTFOLIO"))
+            return new PortfolioSearch(this).solve(startGame, goal);
         return res;
     }
 }
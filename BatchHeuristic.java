@@ -0,0 +1,107 @@
+/**
+ * Evaluates the weighted Manhattan Distance (see {@link WeightedHeuristic}) of many packed states
+ * at once, for instance all the children generated by one expansion wave. The states are read in
+ * the format of {@link StateCodec}, so no Node or Block is touched: every cell costs one lookup in
+ * a table holding price * distance for every block value and position.
+ *
+ * This class is the scalar evaluator. When the program runs with the incubating Vector API
+ * (--add-modules jdk.incubator.vector) and VectorBatchHeuristic was compiled from vector/, create
+ * returns that subclass instead, which does the table lookups lane-wise with gathers.
+ */
+public class BatchHeuristic {
+    // The codec that packed the states
+    final StateCodec codec;
+    // Number of cells of the board
+    final int cells;
+    // price * Manhattan Distance, indexed by value * cells + position (0 for the empty space)
+    final int[] distance;
+    // Manhattan Distance, indexed by value * cells + position
+    final int[] steps;
+
+    /**
+     * Constructs a scalar evaluator for states packed by the given codec.
+     *
+     * @param codec The codec that packed the states.
+     */
+    public BatchHeuristic(StateCodec codec) {
+        this.codec = codec;
+        this.cells = codec.numOfRow * codec.numOfCol;
+        this.distance = new int[this.cells * this.cells];
+        this.steps = new int[this.cells * this.cells];
+        for (int value = 1; value < this.cells; value++) {
+            int goalRow = (value - 1) / codec.numOfCol;
+            int goalCol = (value - 1) % codec.numOfCol;
+            for (int position = 0; position < this.cells; position++) {
+                int d = Math.abs(goalRow - position / codec.numOfCol) + Math.abs(goalCol - position % codec.numOfCol);
+                this.steps[value * this.cells + position] = d;
+                this.distance[value * this.cells + position] = d * codec.priceOfMove[value];
+            }
+        }
+    }
+
+    /**
+     * Returns the Vector API evaluator if it is on the class path and the jdk.incubator.vector
+     * module is enabled, the scalar one otherwise.
+     *
+     * @param codec The codec that packed the states.
+     * @return The evaluator.
+     */
+    public static BatchHeuristic create(StateCodec codec) {
+        try {
+            Class<?> vectorClass = Class.forName("VectorBatchHeuristic");
+            return (BatchHeuristic) vectorClass.getConstructor(StateCodec.class).newInstance(codec);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new BatchHeuristic(codec);
+        }
+    }
+
+    /**
+     * Returns a short name of the evaluator, for reports.
+     */
+    public String name() {
+        return "scalar";
+    }
+
+    /**
+     * Evaluates a batch of packed states stored one after the other.
+     *
+     * @param states The packed states, codec.stateSize bytes each.
+     * @param count  The number of states in the batch.
+     * @param h      Receives the heuristic value of every state, or Double.POSITIVE_INFINITY for
+     *               the states in which a white block cannot reach its goal position anymore.
+     */
+    public void evaluate(byte[] states, int count, double[] h) {
+        for (int i = 0; i < count; i++) {
+            int offset = i * this.codec.stateSize;
+            h[i] = isDead(states, offset) ? Double.POSITIVE_INFINITY : weightedDistance(states, offset);
+        }
+    }
+
+    /**
+     * Returns the sum of price * Manhattan Distance over the blocks of one packed state.
+     */
+    int weightedDistance(byte[] states, int offset) {
+        int sum = 0;
+        for (int position = 0; position < this.cells; position++) {
+            sum += this.distance[(states[offset + position] & 0xFF) * this.cells + position];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns true if a white block of one packed state has fewer moves left than its distance.
+     */
+    boolean isDead(byte[] states, int offset) {
+        if (this.codec.whiteValues.length == 0) {
+            return false;
+        }
+        for (int position = 0; position < this.cells; position++) {
+            int value = states[offset + position] & 0xFF;
+            int slot = this.codec.whiteSlot[value];
+            if (slot >= 0 && this.codec.budget(states, offset, slot) < this.steps[value * this.cells + position]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -5,8 +5,8 @@
 public class Block {
     // Value of the block
     private int value;
-    // Color of the block
-    private String color;
+    // True if the block is white, false if it is red
+    private boolean white;
     // Cost associated with moving the block
     private int priceOfMove;
     // Number of moves made with this block
@@ -20,7 +20,7 @@ public class Block {
      */
     public Block(int value, String color) {
         this.value = value;
-        this.color = color;
+        this.white = color.equals("white");
     }
 
     /**
@@ -30,7 +30,7 @@ public class Block {
      */
     public Block(Block copyBlock){
         this.value = copyBlock.value;
-        this.color = copyBlock.color;
+        this.white = copyBlock.white;
         this.priceOfMove = copyBlock.priceOfMove;
         this.numOfMove = copyBlock.numOfMove;
     }
@@ -49,7 +49,7 @@ public class Block {
      *
      * @return The color of the block.
      */
-    public String getColor() {return color;}
+    public String getColor() {return white ? "white" : "red";}
 
     /**
      * Sets the color of the block.
@@ -57,7 +57,23 @@ public class Block {
      * @param color The new color of the block.
      */
     public void setColor(String color){
-        this.color = color;
+        this.white = color.equals("white");
+    }
+
+    /**
+     * Returns true if the block is white. Used on the search hot path instead of comparing colors.
+     *
+     * @return true if the block is white, false if it is red.
+     */
+    public boolean isWhite() {return white;}
+
+    /**
+     * Sets whether the block is white or red.
+     *
+     * @param white true for a white block, false for a red one.
+     */
+    public void setWhite(boolean white) {
+        this.white = white;
     }
 
     /**
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Duplicate detection that takes the remaining moves of the white blocks into account. A state is
+ * the board and the remaining moves of every white block, but the key of a node (see
+ * Node.getKey) only holds the board. Of two nodes with the same board, one dominates the other if
+ * its cost is no larger and every white block has at least as many moves left: every path from the
+ * dominated node is also open to the dominating one, at no larger cost. The store keeps, per board,
+ * the nodes that no other stored node dominates, and a node is pruned if a stored node dominates it.
+ * Two nodes with the same board, cost and budgets dominate each other, so the usual duplicates are
+ * pruned as well.
+ *
+ * A node that a newly stored node dominates is removed from the store and marked out (see
+ * Node.isOut), so the searches can skip it when it comes out of their open list.
+ */
+public class DominanceStore {
+    // The budgets of a puzzle without white blocks
+    private static final int[] NO_BUDGETS = new int[0];
+
+    // Finds the white blocks and orders their budgets
+    private final StateCodec codec;
+    // The stored nodes by board key
+    private final Map<String, List<Entry>> byBoard = new HashMap<>();
+    // Number of stored nodes
+    private int size;
+
+    /**
+     * A stored node with the remaining moves of its white blocks, in the order of codec.whiteValues.
+     */
+    private static class Entry {
+        final Node node;
+        final int[] budgets;
+
+        Entry(Node node, int[] budgets) {
+            this.node = node;
+            this.budgets = budgets;
+        }
+    }
+
+    /**
+     * Constructs an empty store for the states of a puzzle.
+     *
+     * @param codec A codec of the puzzle, which knows its white blocks.
+     */
+    public DominanceStore(StateCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Stores a node unless a stored node dominates it. The stored nodes it dominates are removed
+     * and marked out.
+     *
+     * @param node The node to store.
+     * @return true if the node was stored, false if it is dominated and should be pruned.
+     */
+    public boolean offer(Node node) {
+        int[] budgets = budgets(node);
+        List<Entry> entries = this.byBoard.get(node.getKey());
+        if (entries == null) {
+            entries = new ArrayList<>(1);
+            this.byBoard.put(node.getKey(), entries);
+        }
+        for (Entry entry : entries) {
+            if (entry.node.g <= node.g && covers(entry.budgets, budgets)) {
+                return false;
+            }
+        }
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry entry = entries.get(i);
+            if (node.g <= entry.node.g && covers(budgets, entry.budgets)) {
+                entry.node.isOut = true;
+                entries.set(i, entries.get(entries.size() - 1));
+                entries.remove(entries.size() - 1);
+                this.size--;
+            }
+        }
+        entries.add(new Entry(node, budgets));
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Returns the stored nodes in a new array. Only the references are copied, so the nodes can be
+     * read on another thread while the search goes on.
+     */
+    public Node[] toArray() {
+        Node[] nodes = new Node[this.size];
+        int n = 0;
+        for (List<Entry> entries : this.byBoard.values()) {
+            for (Entry entry : entries) {
+                nodes[n++] = entry.node;
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of stored nodes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns true if every budget of the first vector is at least the one of the second.
+     */
+    private static boolean covers(int[] budgets, int[] other) {
+        for (int i = 0; i < budgets.length; i++) {
+            if (budgets[i] < other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the remaining moves of the white blocks of a node, in the order of codec.whiteValues.
+     */
+    private int[] budgets(Node node) {
+        if (this.codec.whiteValues.length == 0) {
+            return NO_BUDGETS;
+        }
+        int[] budgets = new int[this.codec.whiteValues.length];
+        for (Block[] blocks : node.board) {
+            for (Block block : blocks) {
+                int slot = this.codec.whiteSlot[block.getValue()];
+                if (slot >= 0) {
+                    budgets[slot] = block.getNumOfMove();
+                }
+            }
+        }
+        return budgets;
+    }
+}
@@ -1,147 +1,143 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 
 public class Ex1 {
-    public static void main(String[] args) {
-        BufferedReader reader = null;
-        String filePath = "input.txt";
-        try {
-            FileReader fileReader = new FileReader(filePath);
-            reader = new BufferedReader(fileReader);
-            String line;
-            boolean timeFlag;
-            boolean openFlag;
-
-            //Get the algorithm name from the file text
-            String algorithm = reader.readLine();
-
-            //Get the time flag from the user
-            line = reader.readLine();
-            timeFlag = line.equals("with time");
-
-            //Get the open flag from the user
-            line = reader.readLine();
-            openFlag = line.equals("with open");
-
-            //Get the size of the table and corvette to int
-            line = reader.readLine();
-            String[] tmp = line.split("x");
-            int numOfRow = Integer.parseInt(tmp[0]);
-            int numOfCol = Integer.parseInt(tmp[1]);
-
-            //Get the white blocks and corvette to list of tuple
-            line = reader.readLine();
-            Map<Integer, Integer> whiteMoves = parseWhiteData(line);
-
-            String matrix = "";
-            while ((line = reader.readLine()) != null) {
-                matrix += line;
-                matrix += "\n";
-            }
-            String[] matrixRows = matrix.split("\n");
-            Block[][] board = createMatrix(matrixRows, whiteMoves);
-            Node start = new Node(board);
-
-            //Send the data from the user and start the process in Algorithm class
-            Algorithm myAlgo = new Algorithm(algorithm, timeFlag, openFlag, numOfRow, numOfCol);
-            long startTime = System.currentTimeMillis();
-            String res = myAlgo.startGame(start,myAlgo.getGoal());
-            long endTime = System.currentTimeMillis();
-            long elapsedTimeMillis = endTime - startTime;
-            double elapsedTimeSec = elapsedTimeMillis / 1000.0;
-            myAlgo.writeText(res, elapsedTimeSec);
-        } catch (IOException e) {
-            System.err.println("An error occurred: " + e.getMessage());
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-    }
-
-
-
     /**
-     * Creates a matrix of {@link Block} objects based on input strings representing rows and a map
-     * of white moves. Each cell in the input strings corresponds to a {@link Block} in the matrix.
-     * The value of each block is determined by the input string, with "_" representing a block with
-     * value 0. The color and other properties of the block are determined by whether the block's
-     * value is a key in the whiteMoves map.
+     * Reads the puzzles from input.txt, solves them one after the other and writes the reports to
+     * output.txt. The input may hold several puzzles, in the text or in the binary format (see
+     * {@link InstanceReader}).
      *
-     * @param rows An array of strings, where each string represents a row in the matrix. Each value
-     *             in the row is separated by a comma, and "_" represents a value of 0.
-     * @param whiteMoves A map where each key-value pair represents a white move's value and its
-     *                   corresponding number of moves. Used to set specific properties for blocks
-     *                   that represent white moves.
-     * @return A 2D array of {@link Block} objects representing the matrix. Each block's properties
-     *         are set based on the input rows and the whiteMoves map.
+     * Supported command line options:
+     *   --input=FILE         Read the puzzles from FILE instead of input.txt.
+     *   --convert=FILE       Write the puzzles to FILE in the binary format instead of solving them.
+     *   --heuristic=NAME     Heuristic of the informed algorithms: MD (default), WMD, WLC or WD,
+     *                        or several of them separated by commas (e.g. WLC,WD) for their maximum.
+     *   --offheap-budget=MB  Native memory, in megabytes, the A*-OFFHEAP search may use.
+     *   --external-dir=DIR   Directory for the files of the EXTERNAL search.
+     *   --external-buffer=MB Memory, in megabytes, the EXTERNAL search may use to buffer states.
+     *   --ordering=NAME      Move ordering of IDA* and DFBnB: h (by the h or f of the child) or history
+     *                        (by a history table first), reporting the nodes before the first solution.
+     *   --pruning=NAME       Duplicate pruning of DFID, IDA* and DFBnB: none (default) or fsm, an
+     *                        automaton of the redundant move sequences of the board.
+     *   --checkpoint=FILE    Save snapshots of the A* and IDA* searches to FILE while they run.
+     *   --checkpoint-interval=SEC Time between two snapshots, in seconds (60 by default).
+     *   --resume             Continue from the snapshot in the checkpoint file instead of starting over.
+     *
+     * @param args The command line options.
      */
-    public static Block[][] createMatrix(String[] rows, Map<Integer, Integer> whiteMoves) {
-        Block[][] matrix = new Block[rows.length][];
-        for (int i = 0; i < rows.length; i++) {
-            String[] values = rows[i].split(",");
-            matrix[i] = new Block[values.length];
-            for (int j = 0; j < values.length; j++) {
-                int value = values[j].equals("_") ? 0 : Integer.parseInt(values[j]);
-                Block block = new Block(value, "red"); // Default assumption, might need adjustment
-                if ((whiteMoves != null) && (whiteMoves.containsKey(value))) {
-                    block.setColor("white");
-                    block.setNumOfMove(whiteMoves.get(value));
-                    block.setPriceOfMove(1);
+    public static void main(String[] args) {
+        String filePath = "input.txt";
+        String convertPath = null;
+        String heuristicName = null;
+        long offHeapBudget = -1;
+        Path externalDir = null;
+        long externalBuffer = 64L << 20;
+        String ordering = null;
+        boolean fsmPruning = false;
+        Path checkpointPath = null;
+        long checkpointInterval = 60_000;
+        boolean resume = false;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                if (arg.startsWith("--input=")) {
+                    filePath = value;
+                } else if (arg.startsWith("--convert=")) {
+                    convertPath = value;
+                } else if (arg.startsWith("--heuristic=")) {
+                    Heuristic.forName(value); //Fail on an unknown name before solving anything
+                    heuristicName = value;
+                } else if (arg.startsWith("--offheap-budget=")) {
+                    offHeapBudget = Long.parseLong(value) << 20;
+                } else if (arg.startsWith("--external-dir=")) {
+                    externalDir = Paths.get(value);
+                } else if (arg.startsWith("--external-buffer=")) {
+                    externalBuffer = Long.parseLong(value) << 20;
+                } else if (arg.startsWith("--ordering=")) {
+                    ordering = value;
+                } else if (arg.startsWith("--pruning=")) {
+                    fsmPruning = value.equals("fsm");
+                    if (!fsmPruning && !value.equals("none")) {
+                        System.err.println("Unknown pruning: " + value);
+                    }
+                } else if (arg.startsWith("--checkpoint=")) {
+                    checkpointPath = Paths.get(value);
+                } else if (arg.startsWith("--checkpoint-interval=")) {
+                    checkpointInterval = Long.parseLong(value) * 1000;
+                } else if (arg.equals("--resume")) {
+                    resume = true;
                 } else {
-                    block.setColor("red");
-                    block.setNumOfMove(-1);
-                    block.setPriceOfMove(30);
+                    System.err.println("Unknown option: " + arg);
                 }
-                matrix[i][j] = block;
+            } catch (IllegalArgumentException e) {
+                //An unknown heuristic name, or a value that is not a number
+                System.err.println("An error occurred: " + arg + ": " + e.getMessage());
+                return;
             }
         }
-        return matrix;
-    }
+        try (InstanceReader reader = new InstanceReader(Paths.get(filePath))) {
+            PuzzleInstance instance;
+            if (convertPath != null) {
+                //Write every puzzle in the binary format and stop
+                try (InstanceWriter writer = new InstanceWriter(Paths.get(convertPath))) {
+                    while ((instance = reader.next()) != null) {
+                        writer.write(instance);
+                    }
+                }
+                return;
+            }
+            boolean append = false;
+            LpaStarSearch planner = null; //The LPA* planner of the previous puzzle, for the next one only
+            while ((instance = reader.next()) != null) {
+                Node start = new Node(instance.toBoard());
+                Node.resetTotalNodes();
 
-    /**
-     * Parses a string representing white player moves in a game and converts it into a map
-     * where each key-value pair represents a move and its corresponding number.
-     *
-     * The input string is expected to follow a specific format, starting with "White:" followed by
-     * a list of moves enclosed in parentheses and separated by commas. Each move is represented by
-     * two integers: the first integer represents the move's value, and the second integer represents
-     * the number of the move.
-     *
-     * For example, the string "White:(3,1),(5,2),(2,3)" would be parsed into a map with the following
-     * key-value pairs: {3=1, 5=2, 2=3}.
-     *
-     * If the input string is exactly "White:", indicating no moves, the method returns null.
-     *
-     * @param data The string representing the white player's moves. It must start with "White:" and
-     *             follow the format described above.
-     * @return A Map<Integer, Integer> where the key is the move's value and the value is the number
-     *         of the move. Returns null if the input string is "White:" with no moves specified.
-     * @throws NumberFormatException If the parsing of integers fails due to an improper format of the
-     *                               input string.
-     */
-    public static Map<Integer, Integer> parseWhiteData(String data) {
-        if(data.equals("White:")){ return null; }
-        Map<Integer, Integer> moves = new HashMap<>();
-        data = data.substring(data.indexOf(':') + 1).trim(); // Remove "White:" part
-        String[] blocksData = data.split("\\),\\(");
-        for (String block : blocksData) {
-            block = block.replaceAll("[()]", "");
-            String[] parts = block.split(",");
-            int value = Integer.parseInt(parts[0]);
-            int numOfMove = Integer.parseInt(parts[1]);
-            moves.put(value, numOfMove);
+                //Send the data from the user and start the process in Algorithm class
+                Algorithm myAlgo = new Algorithm(instance.algorithm, instance.timeFlag, instance.openFlag,
+                        instance.numOfRow, instance.numOfCol);
+                if (heuristicName != null) {
+                    //A new heuristic per puzzle, so what it learns about one puzzle is not carried over
+                    myAlgo.setHeuristic(heuristicName);
+                }
+                if (offHeapBudget > 0) {
+                    myAlgo.setOffHeapBudget(offHeapBudget);
+                }
+                myAlgo.setExternalStorage(externalDir, externalBuffer);
+                if (ordering != null) {
+                    myAlgo.setOrdering(ordering);
+                }
+                myAlgo.setPruning(fsmPruning);
+                myAlgo.setPlanner(planner);
+                SearchCheckpoint checkpoint = null;
+                if (checkpointPath != null) {
+                    //Only a snapshot of the same puzzle, algorithm and heuristic is continued from
+                    String configuration = instance.algorithm + " " + (heuristicName == null ? "MD" : heuristicName)
+                            + (ordering == null ? "" : " " + ordering) + (fsmPruning ? " fsm" : "");
+                    checkpoint = new SearchCheckpoint(checkpointPath, checkpointInterval, resume, configuration, start);
+                    myAlgo.setCheckpoint(checkpoint);
+                }
+                long startTime = System.currentTimeMillis();
+                String res = null;
+                try {
+                    res = myAlgo.startGame(start,myAlgo.getGoal());
+                } finally {
+                    if (checkpoint != null) {
+                        //The snapshot is only kept if the search did not finish
+                        checkpoint.finish(res != null);
+                    }
+                }
+                planner = myAlgo.getPlanner();
+                long endTime = System.currentTimeMillis();
+                long elapsedTimeMillis = endTime - startTime;
+                double elapsedTimeSec = elapsedTimeMillis / 1000.0;
+                myAlgo.writeText(res, elapsedTimeSec, append);
+                append = true;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            //A malformed input, a block that is not on its board, or one that does not fit the binary format
+            System.err.println("An error occurred: " + e.getMessage());
         }
-        return moves;
     }
-
 }
-
@@ -0,0 +1,527 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Implements an external-memory A* search with delayed duplicate detection. The search keeps its
+ * open list on disk as buckets of states with equal f and g values and expands them in increasing
+ * (f, g) order, one bucket at a time. Generated children are collected in memory up to a fixed
+ * budget and written out as sorted run files. When a bucket is expanded, its runs are merged, the
+ * duplicates inside the bucket are dropped and the states that were already expanded are removed
+ * by a merge against the sorted layer files of the expanded buckets. Every expanded bucket is kept
+ * as a sorted layer file so the solution path can be rebuilt by binary search once the goal is found.
+ *
+ * The heuristic value only depends on the state, so a state of a bucket can only have been expanded
+ * in a bucket with the same h = f - g. The expanded layers are therefore partitioned by h, and a
+ * bucket is only merged against the layers of its own partition, which are read but never
+ * rewritten. When a partition grows to MAX_FAN_IN files its layers are merged into one compacted run.
+ *
+ * States are stored with {@link StateCodec}, so the remaining moves of the white blocks are part of
+ * every state, and children are generated with {@link Node#Move(byte)}, so the results are the
+ * same as the ones of {@link Algorithm#aStar(Node, int[][])}.
+ */
+public class ExternalSearch {
+    // Maximal number of run files merged in one pass
+    private static final int MAX_FAN_IN = 128;
+    // Size in bytes of the buffer of every run reader and writer
+    private static final int IO_BUFFER = 1 << 16;
+
+    // The algorithm instance providing the operators, the goal test and the open flag
+    private final Algorithm algorithm;
+    // The codec used to pack the states of the search
+    private final StateCodec codec;
+    // Size in bytes of one record: the packed state followed by the last move
+    private final int recordSize;
+    // The directory holding the run, layer and closed files
+    private final Path dir;
+    // Number of bytes of generated records that may be buffered in memory
+    private final long bufferBudget;
+    // The buckets of the open list, by f and then by g
+    private final TreeMap<Double, TreeMap<Integer, Bucket>> open = new TreeMap<>();
+    // The expanded layer files, by g
+    private final Map<Integer, List<Path>> layers = new HashMap<>();
+    // The expanded states, partitioned by h
+    private final Map<Double, Partition> closed = new HashMap<>();
+    // Number of bytes of records currently buffered in memory
+    private long buffered;
+    // Counter used to name the files of the search
+    private int fileCounter;
+
+    /**
+     * A bucket of the open list: the records buffered in memory and the sorted runs on disk.
+     */
+    private static class Bucket {
+        byte[] buffer = new byte[0];
+        int count;
+        List<Path> runs = new ArrayList<>();
+    }
+
+    /**
+     * The expanded states with one h value: the sorted layer files of the buckets and a sorted run
+     * merged from older layers.
+     */
+    private static class Partition {
+        // Layer files not yet merged into the compacted run
+        List<Path> layers = new ArrayList<>();
+        // Sorted run of the states of the older layers, or null
+        Path compacted;
+    }
+
+    /**
+     * Constructs an external search for puzzles derived from the given initial state.
+     *
+     * @param algorithm    The algorithm instance providing the operators and the goal test.
+     * @param start        The initial state of the puzzle.
+     * @param dir          The directory in which the search files are created. It is removed when
+     *                     the search ends.
+     * @param bufferBudget The number of bytes of generated states that may be buffered in memory.
+     */
+    public ExternalSearch(Algorithm algorithm, Node start, Path dir, long bufferBudget) {
+        this.algorithm = algorithm;
+        this.codec = new StateCodec(start);
+        this.recordSize = this.codec.stateSize + 1;
+        this.dir = dir;
+        this.bufferBudget = bufferBudget;
+    }
+
+    /**
+     * Runs the search from the given initial state.
+     *
+     * @param startGame The initial state of the puzzle.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @return A string that describes the solution path, the number of nodes generated and the cost
+     *         of the solution, or "no path" if the goal state is not reachable.
+     * @throws IOException If a search file cannot be written or read.
+     */
+    public String solve(Node startGame, int[][] goal) throws IOException {
+        try {
+            byte[] record = new byte[this.recordSize];
+            byte[] childRecord = new byte[this.recordSize];
+            startGame.g = 0;
+            startGame.h = this.algorithm.heuristic.evaluate(startGame, goal);
+            startGame.f = startGame.g + startGame.h;
+            this.codec.pack(startGame, record, 0);
+            record[this.codec.stateSize] = Node.NONE;
+            add(startGame.f, 0, record);
+
+            while (!this.open.isEmpty()) {
+                Map.Entry<Double, TreeMap<Integer, Bucket>> fEntry = this.open.firstEntry();
+                Map.Entry<Integer, Bucket> gEntry = fEntry.getValue().pollFirstEntry();
+                if (fEntry.getValue().isEmpty()) {
+                    this.open.remove(fEntry.getKey());
+                }
+                int g = gEntry.getKey();
+                Bucket bucket = gEntry.getValue();
+                flush(bucket);
+
+                // Delayed duplicate detection: drop the states that were already expanded
+                Path layer = newFile();
+                Partition partition = this.closed.computeIfAbsent(fEntry.getKey() - g, k -> new Partition());
+                subtractClosed(merge(bucket.runs), partition, layer);
+                addLayer(partition, layer);
+                this.layers.computeIfAbsent(g, k -> new ArrayList<>()).add(layer);
+
+                // Stream the layer back in and expand every state
+                try (RunReader reader = new RunReader(layer, this.recordSize)) {
+                    while (reader.next(record)) {
+                        byte move = record[this.codec.stateSize];
+                        Node currentNode = this.codec.unpack(record, 0, g, move);
+                        if (this.algorithm.openFlag) {
+                            System.out.println(currentNode);
+                        }
+                        if (this.algorithm.isGoal(currentNode, goal)) {
+                            return rebuildPath(record, g) + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + g;
+                        }
+                        for (int i = 0; i < this.algorithm.operator.length; i++) {
+                            Node child = currentNode.Move(this.algorithm.operator[i]);
+                            if (child != null) {
+                                child.h = this.algorithm.heuristic.evaluate(child, goal);
+                                child.f = child.g + child.h;
+                                if (Double.isInfinite(child.f)) {
+                                    continue; // The goal is not reachable from the child
+                                }
+                                this.codec.pack(child, childRecord, 0);
+                                childRecord[this.codec.stateSize] = (byte) i;
+                                add(child.f, child.g, childRecord);
+                            }
+                        }
+                    }
+                }
+            }
+            return "no path" + "\n" + "Num: " + Node.totalNodes() + "\nCost:";
+        } finally {
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Adds a generated record to the bucket of its f and g values, spilling the buffered records to
+     * disk when the memory budget is exceeded.
+     */
+    private void add(double f, int g, byte[] record) throws IOException {
+        Bucket bucket = this.open.computeIfAbsent(f, k -> new TreeMap<>()).computeIfAbsent(g, k -> new Bucket());
+        int offset = bucket.count * this.recordSize;
+        if (offset + this.recordSize > bucket.buffer.length) {
+            int length = Math.max(bucket.buffer.length * 2, this.recordSize * 64);
+            bucket.buffer = Arrays.copyOf(bucket.buffer, length);
+        }
+        System.arraycopy(record, 0, bucket.buffer, offset, this.recordSize);
+        bucket.count++;
+        this.buffered += this.recordSize;
+        if (this.buffered > this.bufferBudget) {
+            for (TreeMap<Integer, Bucket> buckets : this.open.values()) {
+                for (Bucket b : buckets.values()) {
+                    flush(b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the buffered records of a bucket, drops the duplicates and writes them as a new run.
+     */
+    private void flush(Bucket bucket) throws IOException {
+        if (bucket.count == 0) {
+            return;
+        }
+        int[] order = new int[bucket.count];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        byte[] buffer = bucket.buffer;
+        sort(buffer, order, new int[order.length], 0, order.length);
+        Path run = newFile();
+        try (RunWriter writer = new RunWriter(run)) {
+            int last = -1;
+            for (int i : order) {
+                if (last < 0 || compare(buffer, last * this.recordSize, buffer, i * this.recordSize) != 0) {
+                    writer.write(buffer, i * this.recordSize, this.recordSize);
+                    last = i;
+                }
+            }
+        }
+        bucket.runs.add(run);
+        this.buffered -= (long) bucket.count * this.recordSize;
+        bucket.buffer = new byte[0];
+        bucket.count = 0;
+    }
+
+    /**
+     * Sorts the indexes of the records of a buffer in [from, to) by their states, with a merge sort
+     * that works on the primitive indexes.
+     */
+    private void sort(byte[] buffer, int[] order, int[] tmp, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int index = order[i];
+                int j = i - 1;
+                while (j >= from && compare(buffer, order[j] * this.recordSize, buffer, index * this.recordSize) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = index;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(buffer, order, tmp, from, mid);
+        sort(buffer, order, tmp, mid, to);
+        System.arraycopy(order, from, tmp, from, to - from);
+        int left = from, right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid
+                    && compare(buffer, tmp[left] * this.recordSize, buffer, tmp[right] * this.recordSize) <= 0)) {
+                order[i] = tmp[left++];
+            } else {
+                order[i] = tmp[right++];
+            }
+        }
+    }
+
+    /**
+     * Merges sorted runs into a single sorted run without duplicates, in several passes if there are
+     * more runs than MAX_FAN_IN. The input runs are deleted.
+     */
+    private Path merge(List<Path> runs) throws IOException {
+        Deque<Path> pending = new ArrayDeque<>(runs);
+        if (pending.isEmpty()) {
+            Path empty = newFile();
+            new RunWriter(empty).close();
+            return empty;
+        }
+        while (pending.size() > 1) {
+            List<Path> batch = new ArrayList<>();
+            while (!pending.isEmpty() && batch.size() < MAX_FAN_IN) {
+                batch.add(pending.poll());
+            }
+            Path merged = mergeRuns(batch);
+            for (Path run : batch) {
+                Files.delete(run);
+            }
+            pending.add(merged);
+        }
+        return pending.poll();
+    }
+
+    /**
+     * Merges at most MAX_FAN_IN sorted runs into a new sorted run without duplicates in one pass.
+     * The input runs are kept.
+     */
+    private Path mergeRuns(List<Path> runs) throws IOException {
+        Path merged = newFile();
+        List<RunReader> readers = new ArrayList<>();
+        try (RunWriter writer = new RunWriter(merged)) {
+            PriorityQueue<RunReader> heap = new PriorityQueue<>((a, b) -> compare(a.current, 0, b.current, 0));
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run, this.recordSize);
+                readers.add(reader);
+                if (reader.next(reader.current)) {
+                    heap.add(reader);
+                }
+            }
+            byte[] last = new byte[this.recordSize];
+            boolean hasLast = false;
+            while (!heap.isEmpty()) {
+                RunReader reader = heap.poll();
+                if (!hasLast || compare(last, 0, reader.current, 0) != 0) {
+                    writer.write(reader.current, 0, this.recordSize);
+                    System.arraycopy(reader.current, 0, last, 0, this.recordSize);
+                    hasLast = true;
+                }
+                if (reader.next(reader.current)) {
+                    heap.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Writes to layer the records of candidates whose state is not in the partition of the closed
+     * set. The candidates run is deleted.
+     */
+    private void subtractClosed(Path candidates, Partition closed, Path layer) throws IOException {
+        byte[] record = new byte[this.recordSize];
+        List<RunReader> readers = new ArrayList<>();
+        try (RunReader candidateReader = new RunReader(candidates, this.recordSize);
+             RunWriter layerWriter = new RunWriter(layer)) {
+            if (closed.compacted != null) {
+                readers.add(new RunReader(closed.compacted, this.recordSize));
+            }
+            for (Path run : closed.layers) {
+                readers.add(new RunReader(run, this.recordSize));
+            }
+            boolean[] hasNext = new boolean[readers.size()];
+            for (int i = 0; i < hasNext.length; i++) {
+                hasNext[i] = readers.get(i).next(readers.get(i).current);
+            }
+            while (candidateReader.next(record)) {
+                boolean expanded = false;
+                for (int i = 0; i < hasNext.length; i++) {
+                    RunReader reader = readers.get(i);
+                    int cmp = 1;
+                    while (hasNext[i] && (cmp = compare(reader.current, 0, record, 0)) < 0) {
+                        hasNext[i] = reader.next(reader.current);
+                    }
+                    if (hasNext[i] && cmp == 0) {
+                        expanded = true;
+                    }
+                }
+                if (!expanded) {
+                    layerWriter.write(record, 0, this.recordSize);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+        Files.delete(candidates);
+    }
+
+    /**
+     * Adds an expanded layer to its partition of the closed set, merging the layers of the
+     * partition into its compacted run once they and the run make MAX_FAN_IN files. The layer files
+     * themselves are kept for rebuilding the path.
+     */
+    private void addLayer(Partition closed, Path layer) throws IOException {
+        closed.layers.add(layer);
+        if (closed.layers.size() + 1 < MAX_FAN_IN) {
+            return;
+        }
+        List<Path> runs = new ArrayList<>(closed.layers);
+        if (closed.compacted != null) {
+            runs.add(closed.compacted);
+        }
+        Path compacted = mergeRuns(runs);
+        if (closed.compacted != null) {
+            Files.delete(closed.compacted);
+        }
+        closed.compacted = compacted;
+        closed.layers.clear();
+    }
+
+    /**
+     * Rebuilds the solution path by undoing the last move of every state and looking up the parent
+     * state in the layer files of its cost.
+     */
+    private String rebuildPath(byte[] goalRecord, int g) throws IOException {
+        int cols = this.codec.numOfCol;
+        byte[] record = goalRecord.clone();
+        List<String> steps = new ArrayList<>();
+        while (record[this.codec.stateSize] >= 0) {
+            byte move = record[this.codec.stateSize];
+            int blank = this.codec.blankPosition(record, 0);
+            // The empty space of the parent is where the moved block is now
+            int parentBlank = blank + new int[]{-1, -cols, 1, cols}[move];
+            int movedBlock = record[parentBlank] & 0xFF;
+            record[blank] = (byte) movedBlock;
+            record[parentBlank] = 0;
+            int slot = this.codec.whiteSlot[movedBlock];
+            if (slot >= 0) {
+                this.codec.setBudget(record, 0, slot, this.codec.budget(record, 0, slot) + 1);
+            }
+            steps.add(movedBlock + Node.PATH_SUFFIX[move]);
+            g -= this.codec.priceOfMove[movedBlock];
+            if (!findInLayers(g, record)) {
+                throw new IOException("parent state missing from layer " + g);
+            }
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            path.append(steps.get(i));
+        }
+        return path.length() == 0 ? "" : path.substring(0, path.length() - 1);
+    }
+
+    /**
+     * Looks up a state in the layer files of the given cost by binary search. On success the last move
+     * stored with the state is copied into the record.
+     */
+    private boolean findInLayers(int g, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(this.recordSize);
+        for (Path layer : this.layers.getOrDefault(g, Collections.emptyList())) {
+            try (FileChannel channel = FileChannel.open(layer, StandardOpenOption.READ)) {
+                long low = 0;
+                long high = channel.size() / this.recordSize - 1;
+                while (low <= high) {
+                    long mid = (low + high) >>> 1;
+                    buffer.clear();
+                    while (buffer.hasRemaining() && channel.read(buffer, mid * this.recordSize + buffer.position()) > 0) {
+                        // Keep reading until the whole record is in the buffer
+                    }
+                    int cmp = compare(buffer.array(), 0, record, 0);
+                    if (cmp == 0) {
+                        record[this.codec.stateSize] = buffer.array()[this.codec.stateSize];
+                        return true;
+                    } else if (cmp < 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the packed states of two records as unsigned byte strings.
+     */
+    private int compare(byte[] a, int aOffset, byte[] b, int bOffset) {
+        return Arrays.compareUnsigned(a, aOffset, aOffset + this.codec.stateSize, b, bOffset, bOffset + this.codec.stateSize);
+    }
+
+    private Path newFile() throws IOException {
+        Path file = this.dir.resolve("search-" + (this.fileCounter++) + ".bin");
+        Files.deleteIfExists(file);
+        Files.createFile(file);
+        return file;
+    }
+
+    private void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(this.dir);
+    }
+
+    /**
+     * Reads fixed-width records sequentially from a file through a buffered channel.
+     */
+    private static class RunReader implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        final byte[] current;
+
+        RunReader(Path file, int recordSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.current = new byte[recordSize];
+            this.buffer.limit(0);
+        }
+
+        boolean next(byte[] dst) throws IOException {
+            if (this.buffer.remaining() < dst.length) {
+                this.buffer.compact();
+                while (this.buffer.position() < dst.length && this.channel.read(this.buffer) > 0) {
+                    // Fill the buffer until at least one record is available
+                }
+                this.buffer.flip();
+                if (this.buffer.remaining() < dst.length) {
+                    return false;
+                }
+            }
+            this.buffer.get(dst);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes records sequentially to a file through a buffered channel.
+     */
+    private static class RunWriter implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+
+        RunWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(byte[] src, int offset, int length) throws IOException {
+            if (this.buffer.remaining() < length) {
+                drain();
+            }
+            this.buffer.put(src, offset, length);
+        }
+
+        private void drain() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            this.channel.close();
+        }
+    }
+}
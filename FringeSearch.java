@@ -0,0 +1,150 @@
+/**
+ * Implements Fringe Search, an alternative to IDA* that keeps its frontier between iterations.
+ * Like IDA*, the search runs in iterations with a growing f threshold and visits the frontier in
+ * depth-first order, but instead of restarting from the initial state every iteration it keeps
+ * the frontier in a doubly linked list: nodes above the threshold stay in the list for the next
+ * iteration ("later"), and the children of an expanded node are inserted right after it so they
+ * are visited next ("now"). A {@link DominanceStore} of the generated states removes duplicates,
+ * and the entries of the nodes it marks out are dropped when they are reached, so every state is
+ * expanded about as often as in A*, without the priority queue.
+ *
+ * With red moves costing 30 and white moves costing 1, IDA* goes through many thresholds and
+ * re-expands the whole tree every time; Fringe Search only resumes from the saved frontier.
+ */
+public class FringeSearch {
+    // The algorithm instance providing the operators, the heuristic and the goal test
+    private final Algorithm algorithm;
+    // The first entry of the frontier list, or null if it is empty
+    private Entry head;
+
+    /**
+     * A node of the frontier list and its links.
+     */
+    private static class Entry {
+        final Node node;
+        Entry prev, next;
+
+        Entry(Node node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Constructs a fringe search.
+     *
+     * @param algorithm The algorithm instance providing the operators, the heuristic and the goal test.
+     */
+    public FringeSearch(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Runs the search from the given initial state.
+     *
+     * @param startGame The initial state of the puzzle.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @return A string that describes the solution path, the number of nodes generated and the cost
+     *         of the solution, or "no path" if the goal state is not reachable.
+     */
+    public String solve(Node startGame, int[][] goal) {
+        // Every generated state that no other one dominates (see DominanceStore)
+        DominanceStore generated = new DominanceStore(new StateCodec(startGame));
+        startGame.g = 0;
+        startGame.h = this.algorithm.heuristic.evaluate(startGame, goal);
+        startGame.f = startGame.g + startGame.h;
+        if (Double.isInfinite(startGame.f)) {
+            return "no path" + "\n" + "Num: " + Node.totalNodes() + "\nCost:";
+        }
+        this.algorithm.reserveNode();
+        generated.offer(startGame);
+        insertAfter(null, new Entry(startGame));
+
+        double threshold = startGame.f;
+        while (this.head != null) {
+            double minF = Double.POSITIVE_INFINITY;
+            if (this.algorithm.openFlag) {
+                for (Entry entry = this.head; entry != null; entry = entry.next) {
+                    System.out.println(entry.node);
+                }
+            }
+            Entry entry = this.head;
+            while (entry != null) {
+                this.algorithm.checkCancelled();
+                Node node = entry.node;
+                if (node.isOut) {
+                    // A node that dominates this one was generated after it
+                    Entry next = entry.next;
+                    remove(entry);
+                    this.algorithm.releaseNode();
+                    entry = next;
+                    continue;
+                }
+                if (node.f > threshold) {
+                    // Left in the list for a later iteration
+                    minF = Math.min(minF, node.f);
+                    entry = entry.next;
+                    continue;
+                }
+                if (this.algorithm.isGoal(node, goal)) {
+                    String finalPath = node.path.substring(0, node.path.length() - 1);
+                    return finalPath + "\n" + "Num: " + Node.totalNodes() + "\n" + "Cost: " + node.g;
+                }
+                // The children go right after the node, so they are visited next in this iteration
+                Entry last = entry;
+                for (int i = 0; i < this.algorithm.operator.length; i++) {
+                    Node child = node.Move(this.algorithm.operator[i]);
+                    if (child == null || !generated.offer(child)) {
+                        continue;
+                    }
+                    child.h = this.algorithm.heuristic.evaluate(child, goal);
+                    child.f = child.g + child.h;
+                    if (Double.isInfinite(child.f)) {
+                        continue;
+                    }
+                    Entry added = new Entry(child);
+                    this.algorithm.reserveNode();
+                    insertAfter(last, added);
+                    last = added;
+                }
+                Entry next = entry.next;
+                remove(entry);
+                this.algorithm.releaseNode();
+                entry = next;
+            }
+            threshold = minF; // The next iteration resumes from the nodes left in the list
+        }
+        return "no path" + "\n" + "Num: " + Node.totalNodes() + "\nCost:";
+    }
+
+    /**
+     * Inserts an entry into the frontier list after the given entry, or at its head if it is null.
+     */
+    private void insertAfter(Entry prev, Entry entry) {
+        entry.prev = prev;
+        entry.next = prev == null ? this.head : prev.next;
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        if (prev == null) {
+            this.head = entry;
+        } else {
+            prev.next = entry;
+        }
+    }
+
+    /**
+     * Removes an entry from the frontier list.
+     */
+    private void remove(Entry entry) {
+        if (entry.prev == null) {
+            this.head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * An estimate of the cost to reach the goal state from a given state. The search algorithms of
+ * {@link Algorithm} use the heuristic selected for the run, so different estimates can be compared
+ * on the same puzzle without touching the algorithms themselves.
+ */
+public interface Heuristic {
+    /**
+     * Estimates the cost to reach the goal state from the state of the given node.
+     *
+     * @param node The node for which the heuristic value is to be calculated.
+     * @param goal A 2D integer array representing the goal state configuration of the puzzle.
+     * @return The estimated cost, or Double.POSITIVE_INFINITY if the goal cannot be reached.
+     */
+    double evaluate(Node node, int[][] goal);
+
+    /**
+     * Estimates the cost to reach the goal state, knowing that the caller prunes the node if the
+     * estimate is larger than the cutoff. An implementation may then stop as soon as it knows the
+     * estimate exceeds the cutoff and return any admissible value larger than it.
+     *
+     * @param node   The node for which the heuristic value is to be calculated.
+     * @param goal   A 2D integer array representing the goal state configuration of the puzzle.
+     * @param cutoff The largest estimate for which the node is kept.
+     * @return The estimated cost, or a smaller admissible value that is still larger than the cutoff.
+     */
+    default double evaluate(Node node, int[][] goal, double cutoff) {
+        return evaluate(node, goal);
+    }
+
+    /**
+     * Returns the change of f = g + h caused by a move, computed from the moved block alone without
+     * building the child. Heuristics that cannot tell it this way return Double.NaN, and the child
+     * has to be built and evaluated instead. This is the operator selection function of EPEA*.
+     *
+     * @param node   The node from which the move is made.
+     * @param target The position (row * numOfCol + col) of the block that moves into the empty space.
+     * @return The change of f, Double.POSITIVE_INFINITY if the child cannot reach the goal, or
+     *         Double.NaN if it is not known.
+     */
+    default double deltaF(Node node, int target) {
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the heuristic with the given name. Supported names are:
+     *   MD  - Manhattan Distance and Linear Conflict, counting every move as 1 (the default).
+     *   WMD - Manhattan Distance weighted by the price of moving each block.
+     *   WLC - Weighted Manhattan Distance and weighted Linear Conflict.
+     *   WD  - Walking Distance of the rows plus that of the columns, weighted by the block prices.
+     * Several names separated by commas (e.g. "WLC,WD") select their maximum, evaluated lazily from
+     * the first to the last (see {@link MaxHeuristic}).
+     *
+     * @param name The name of the heuristic.
+     * @return The heuristic.
+     * @throws IllegalArgumentException If the name is not supported.
+     */
+    static Heuristic forName(String name) {
+        if (name.indexOf(',') >= 0) {
+            String[] names = name.split(",");
+            Heuristic[] heuristics = new Heuristic[names.length];
+            for (int i = 0; i < names.length; i++) {
+                heuristics[i] = forName(names[i]);
+            }
+            return new MaxHeuristic(heuristics);
+        }
+        switch (name) {
+            case "MD":
+                return Algorithm::calculateHeuristic;
+            case "WMD":
+                return new WeightedHeuristic(false);
+            case "WLC":
+                return new WeightedHeuristic(true);
+            case "WD":
+                return new WalkingDistanceHeuristic();
+            default:
+                throw new IllegalArgumentException("Unknown heuristic: " + name);
+        }
+    }
+}
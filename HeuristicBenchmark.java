@@ -0,0 +1,88 @@
+import java.util.Random;
+
+/**
+ * Measures how many states per second the heuristic evaluators handle on random 4x4 boards with
+ * two white blocks: the scalar {@link BatchHeuristic}, the Vector API evaluator when it is
+ * available (see {@link BatchHeuristic#create(StateCodec)}), and {@link WeightedHeuristic} on nodes
+ * for reference. The evaluators compute the same values, which is checked before timing them.
+ *
+ * Usage: java HeuristicBenchmark [number of states] [rounds]
+ */
+public class HeuristicBenchmark {
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of states (default 100000) and the number of timed rounds (default 20).
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int[] tiles = new int[16];
+        for (int i = 0; i < 15; i++) {
+            tiles[i] = i + 1;
+        }
+        PuzzleInstance instance = new PuzzleInstance("A*", false, false, 4, 4, tiles,
+                new int[]{3, 9}, new int[]{200, 200});
+        Node start = new Node(instance.toBoard());
+        StateCodec codec = new StateCodec(start);
+
+        // Random walks from the goal state, packed one after the other
+        Random random = new Random(42);
+        Node[] nodes = new Node[count];
+        byte[] states = new byte[count * codec.stateSize];
+        Node current = start;
+        for (int i = 0; i < count; i++) {
+            for (int step = 0; step < 8; step++) {
+                Node next = current.Move((byte) random.nextInt(4));
+                if (next != null) {
+                    current = next;
+                }
+            }
+            current.path = "";
+            nodes[i] = current;
+            codec.pack(current, states, i * codec.stateSize);
+        }
+
+        BatchHeuristic scalar = new BatchHeuristic(codec);
+        BatchHeuristic fastest = BatchHeuristic.create(codec);
+        Heuristic weighted = new WeightedHeuristic(false);
+        double[] expected = new double[count];
+        double[] h = new double[count];
+        scalar.evaluate(states, count, expected);
+        fastest.evaluate(states, count, h);
+        for (int i = 0; i < count; i++) {
+            if (h[i] != expected[i] || weighted.evaluate(nodes[i], null) != expected[i]) {
+                System.err.println("An error occurred: the evaluators disagree on state " + i);
+                return;
+            }
+        }
+
+        report("nodes", count, rounds, () -> {
+            for (Node node : nodes) {
+                weighted.evaluate(node, null);
+            }
+        });
+        report(scalar.name(), count, rounds, () -> scalar.evaluate(states, count, h));
+        if (fastest != scalar && !fastest.name().equals(scalar.name())) {
+            report(fastest.name(), count, rounds, () -> fastest.evaluate(states, count, h));
+        } else {
+            System.out.println("vector: not available, run with --add-modules jdk.incubator.vector");
+        }
+    }
+
+    /**
+     * Runs a batch a few times to warm up, then times the given number of rounds and prints the
+     * number of states evaluated per second.
+     */
+    private static void report(String name, int count, int rounds, Runnable batch) {
+        for (int i = 0; i < 20; i++) {
+            batch.run();
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            batch.run();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("%s: %.0f states/second%n", name, count * (double) rounds / seconds);
+    }
+}
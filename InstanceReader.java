@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams puzzle instances from an input file. The file is read through a buffered channel and
+ * scanned byte by byte, without regular expressions and without building a String per line, so
+ * files holding many puzzles can be read as fast as the disk delivers them.
+ *
+ * Two formats are supported and told apart by the first bytes of the file:
+ *
+ * The text format is the one of input.txt, repeated once per puzzle (blank lines between puzzles
+ * are ignored):
+ *   A*                      the algorithm
+ *   with time               or "no time"
+ *   no open                 or "with open"
+ *   3x4                     the board dimensions
+ *   White:(2,3),(5,1)       the white blocks and their number of moves, possibly none
+ *   1,2,3,4                 one line per row, "_" for the empty space
+ *   ...
+ *
+ * The binary format, written by {@link InstanceWriter}, starts with the magic bytes "PZB1" followed
+ * by one record per puzzle:
+ *   algorithm name length (1 byte), algorithm name (ASCII), flags (1 byte: 1 = time, 2 = open),
+ *   rows (1 byte), columns (1 byte), one byte per block in row-major order (0 = empty space),
+ *   number of white blocks (1 byte), then a (value, moves) byte pair per white block.
+ */
+public class InstanceReader implements AutoCloseable {
+    // Magic bytes at the start of a binary instance file
+    static final byte[] MAGIC = {'P', 'Z', 'B', '1'};
+    // Size in bytes of the read buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The channel of the input file
+    private final FileChannel channel;
+    // The read buffer, always in read mode
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // True if the file is in the binary format
+    private final boolean binary;
+    // Scratch space for the bytes of the current line or name
+    private byte[] line = new byte[64];
+    // Length of the current line
+    private int lineLength;
+    // The last algorithm name read, reused while the following puzzles use the same one
+    private String algorithm = "";
+    private byte[] algorithmBytes = new byte[0];
+
+    /**
+     * Opens an instance file and detects its format.
+     *
+     * @param file The input file.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public InstanceReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer.limit(0);
+        boolean isBinary = fill(MAGIC.length);
+        for (int i = 0; isBinary && i < MAGIC.length; i++) {
+            isBinary = this.buffer.get(i) == MAGIC[i];
+        }
+        this.binary = isBinary;
+        if (isBinary) {
+            this.buffer.position(MAGIC.length);
+        }
+    }
+
+    /**
+     * Reads the next puzzle of the file.
+     *
+     * @return The next puzzle, or null if the end of the file was reached.
+     * @throws IOException If the file cannot be read or a puzzle is malformed.
+     */
+    public PuzzleInstance next() throws IOException {
+        return this.binary ? nextBinary() : nextText();
+    }
+
+    private PuzzleInstance nextText() throws IOException {
+        // Skip blank lines between puzzles
+        int length;
+        do {
+            length = readLine();
+            if (length < 0) {
+                return null;
+            }
+        } while (length == 0);
+        String algorithm = algorithmName(length);
+
+        boolean timeFlag = readLine() >= 0 && lineEquals("with time");
+        boolean openFlag = readLine() >= 0 && lineEquals("with open");
+
+        // The board dimensions, "RxC"
+        int[] pos = {0};
+        requireLine();
+        int numOfRow = parseInt(pos);
+        pos[0]++; // Skip the 'x'
+        int numOfCol = parseInt(pos);
+
+        // The white blocks, "White:(v,m),(v,m)..."
+        length = requireLine();
+        int[] whiteValues = new int[4];
+        int[] whiteMoves = new int[4];
+        int numOfWhite = 0;
+        pos[0] = indexOf(':', 0, length) + 1;
+        while (true) {
+            pos[0] = indexOf('(', pos[0], length);
+            if (pos[0] < 0) {
+                break;
+            }
+            pos[0]++;
+            if (numOfWhite == whiteValues.length) {
+                whiteValues = Arrays.copyOf(whiteValues, numOfWhite * 2);
+                whiteMoves = Arrays.copyOf(whiteMoves, numOfWhite * 2);
+            }
+            whiteValues[numOfWhite] = parseInt(pos);
+            pos[0]++; // Skip the ','
+            whiteMoves[numOfWhite] = parseInt(pos);
+            numOfWhite++;
+        }
+
+        // The rows of the board
+        int[] tiles = new int[numOfRow * numOfCol];
+        for (int i = 0; i < numOfRow; i++) {
+            length = requireLine();
+            pos[0] = 0;
+            for (int j = 0; j < numOfCol; j++) {
+                while (pos[0] < length && (this.line[pos[0]] == ',' || this.line[pos[0]] == ' ')) {
+                    pos[0]++;
+                }
+                if (pos[0] < length && this.line[pos[0]] == '_') {
+                    pos[0]++;
+                } else {
+                    tiles[i * numOfCol + j] = parseInt(pos);
+                }
+            }
+        }
+        return new PuzzleInstance(algorithm, timeFlag, openFlag, numOfRow, numOfCol, tiles,
+                Arrays.copyOf(whiteValues, numOfWhite), Arrays.copyOf(whiteMoves, numOfWhite));
+    }
+
+    private PuzzleInstance nextBinary() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+        int nameLength = this.buffer.get() & 0xFF;
+        requireBytes(nameLength + 3);
+        ensureLine(nameLength);
+        this.buffer.get(this.line, 0, nameLength);
+        String algorithm = algorithmName(nameLength);
+        int flags = this.buffer.get();
+        int numOfRow = this.buffer.get() & 0xFF;
+        int numOfCol = this.buffer.get() & 0xFF;
+        int[] tiles = new int[numOfRow * numOfCol];
+        requireBytes(tiles.length + 1);
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = this.buffer.get() & 0xFF;
+        }
+        int numOfWhite = this.buffer.get() & 0xFF;
+        int[] whiteValues = new int[numOfWhite];
+        int[] whiteMoves = new int[numOfWhite];
+        requireBytes(2 * numOfWhite);
+        for (int i = 0; i < numOfWhite; i++) {
+            whiteValues[i] = this.buffer.get() & 0xFF;
+            whiteMoves[i] = this.buffer.get() & 0xFF;
+        }
+        return new PuzzleInstance(algorithm, (flags & 1) != 0, (flags & 2) != 0, numOfRow, numOfCol,
+                tiles, whiteValues, whiteMoves);
+    }
+
+    /**
+     * Returns the algorithm name held in the first bytes of the line buffer, reusing the previous
+     * String when the name did not change.
+     */
+    private String algorithmName(int length) {
+        if (!Arrays.equals(this.line, 0, length, this.algorithmBytes, 0, this.algorithmBytes.length)) {
+            this.algorithmBytes = Arrays.copyOf(this.line, length);
+            this.algorithm = new String(this.algorithmBytes, StandardCharsets.US_ASCII);
+        }
+        return this.algorithm;
+    }
+
+    /**
+     * Reads the next line, without its line terminator, into the line buffer.
+     *
+     * @return The length of the line, or -1 at the end of the file.
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (!this.buffer.hasRemaining() && !fill(1)) {
+                this.lineLength = length;
+                return length == 0 ? -1 : length;
+            }
+            byte b = this.buffer.get();
+            if (b == '\n') {
+                this.lineLength = length;
+                return length;
+            }
+            if (b != '\r') {
+                ensureLine(length + 1);
+                this.line[length++] = b;
+            }
+        }
+    }
+
+    private int requireLine() throws IOException {
+        int length = readLine();
+        if (length < 0) {
+            throw new IOException("unexpected end of the input file");
+        }
+        // Terminate the line so that number parsing stops at its end
+        ensureLine(length + 1);
+        this.line[length] = '\n';
+        return length;
+    }
+
+    private boolean lineEquals(String text) {
+        if (this.lineLength != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < this.lineLength; i++) {
+            if (this.line[i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a non-negative decimal number starting at pos[0] in the line buffer, and leaves pos[0]
+     * on the first byte after it.
+     */
+    private int parseInt(int[] pos) throws IOException {
+        int i = pos[0];
+        if (i >= this.line.length || this.line[i] < '0' || this.line[i] > '9') {
+            throw new IOException("number expected in the input file");
+        }
+        int value = 0;
+        while (i < this.line.length && this.line[i] >= '0' && this.line[i] <= '9') {
+            value = value * 10 + (this.line[i++] - '0');
+        }
+        pos[0] = i;
+        return value;
+    }
+
+    private int indexOf(char c, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (this.line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureLine(int length) {
+        if (length > this.line.length) {
+            this.line = Arrays.copyOf(this.line, Math.max(length, this.line.length * 2));
+        }
+    }
+
+    private void requireBytes(int count) throws IOException {
+        if (!fill(count)) {
+            throw new IOException("unexpected end of the input file");
+        }
+    }
+
+    /**
+     * Makes sure at least count bytes are available in the buffer, reading from the channel if needed.
+     *
+     * @return false if the end of the file was reached first.
+     */
+    private boolean fill(int count) throws IOException {
+        if (this.buffer.remaining() >= count) {
+            return true;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < count && this.channel.read(this.buffer) > 0) {
+            // Keep reading until enough bytes are available
+        }
+        this.buffer.flip();
+        return this.buffer.remaining() >= count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes puzzle instances in the compact binary format read by {@link InstanceReader}. Converting
+ * a large text input once lets later runs skip text parsing altogether.
+ */
+public class InstanceWriter implements AutoCloseable {
+    // Size in bytes of the write buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The channel of the output file
+    private final FileChannel channel;
+    // The write buffer
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Creates, or truncates, a binary instance file and writes its magic bytes.
+     *
+     * @param file The output file.
+     * @throws IOException If the file cannot be created.
+     */
+    public InstanceWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer.put(InstanceReader.MAGIC);
+    }
+
+    /**
+     * Appends one puzzle to the file.
+     *
+     * @param instance The puzzle to write.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If a value does not fit in one byte.
+     */
+    public void write(PuzzleInstance instance) throws IOException {
+        byte[] name = instance.algorithm.getBytes(StandardCharsets.US_ASCII);
+        int size = 1 + name.length + 3 + instance.tiles.length + 1 + 2 * instance.whiteValues.length;
+        if (this.buffer.remaining() < size) {
+            drain();
+        }
+        this.buffer.put(toByte(name.length));
+        this.buffer.put(name);
+        this.buffer.put((byte) ((instance.timeFlag ? 1 : 0) | (instance.openFlag ? 2 : 0)));
+        this.buffer.put(toByte(instance.numOfRow));
+        this.buffer.put(toByte(instance.numOfCol));
+        for (int tile : instance.tiles) {
+            this.buffer.put(toByte(tile));
+        }
+        this.buffer.put(toByte(instance.whiteValues.length));
+        for (int i = 0; i < instance.whiteValues.length; i++) {
+            this.buffer.put(toByte(instance.whiteValues[i]));
+            this.buffer.put(toByte(instance.whiteMoves[i]));
+        }
+    }
+
+    private static byte toByte(int value) {
+        if (value < 0 || value > 255) {
+            throw new IllegalArgumentException("value does not fit the binary format: " + value);
+        }
+        return (byte) value;
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain();
+        this.channel.close();
+    }
+}
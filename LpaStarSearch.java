@@ -0,0 +1,383 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Implements Lifelong Planning A* (LPA*) so that a puzzle can be solved again cheaply after a small
+ * change, such as a block that became red or white. The search runs on the graph of board layouts,
+ * where moving a block costs its price, and keeps for every layout it reached the cost g of its
+ * best known path and the one-step lookahead rhs. When the prices change, only the layouts next to
+ * an edge whose price changed are updated, and the search repairs the part of the graph whose
+ * costs are no longer consistent instead of starting over.
+ *
+ * The remaining moves of the white blocks are not part of the layout graph, so the layout path
+ * found is the optimal path of the puzzle whenever the white blocks have moves enough. The path is
+ * replayed with {@link Node#Move(byte)}, which enforces the budgets, and when a white block would
+ * run out of moves the puzzle is solved with A* instead.
+ *
+ * Ex1 hands the planner of a puzzle to the next puzzle of the same run only, which reuses it when
+ * it has the same dimensions and the same initial layout, so multi-puzzle input files can list a
+ * puzzle and its changed versions one after the other. A planner that is not reused is dropped.
+ * Only changes of the prices are repaired incrementally: the budgets of the white blocks are not
+ * part of the graph, so a puzzle whose budgets alone changed gets the same layout path, which is
+ * replayed again and, when a white block would run out of moves, solved with A* from scratch.
+ */
+public class LpaStarSearch {
+    // Number of rows of the board
+    private final int numOfRow;
+    // Number of columns of the board
+    private final int numOfCol;
+    // The neighbor table of the board dimension, see Node.neighbors
+    private final int[][] neighbors;
+    // The price of moving every block, indexed by the block value
+    private int[] priceOfMove;
+    // Every layout reached so far, by its key
+    private final Map<String, Vertex> vertices = new HashMap<>();
+    // The queue of inconsistent layouts by key; entries whose layout was requeued or removed are skipped
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    // The initial and the goal layouts
+    private final Vertex start, goal;
+    // Number of layouts created by the current solve
+    private int created;
+
+    /**
+     * A layout of the board and its LPA* values.
+     */
+    private static class Vertex {
+        final char[] tiles;
+        final String key;
+        final int blank;
+        double g = Double.POSITIVE_INFINITY;
+        double rhs = Double.POSITIVE_INFINITY;
+        double h = Double.NaN;
+        // The entry of the layout in the queue, or null if it is not queued
+        Entry entry;
+
+        Vertex(char[] tiles, String key) {
+            this.tiles = tiles;
+            this.key = key;
+            int blank = 0;
+            while (tiles[blank] != 0) {
+                blank++;
+            }
+            this.blank = blank;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("\ng=" + this.g + " rhs=" + this.rhs + "\n");
+            for (int i = 0; i < this.tiles.length; i++) {
+                builder.append(this.tiles[i] == 0 ? "_" : String.valueOf((int) this.tiles[i]));
+                builder.append(i == this.tiles.length - 1 ? "" : ",");
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A queued layout with the key it was queued with.
+     */
+    private static class Entry implements Comparable<Entry> {
+        final Vertex vertex;
+        final double k1, k2;
+
+        Entry(Vertex vertex, double k1, double k2) {
+            this.vertex = vertex;
+            this.k1 = k1;
+            this.k2 = k2;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return this.k1 != other.k1 ? Double.compare(this.k1, other.k1) : Double.compare(this.k2, other.k2);
+        }
+    }
+
+    /**
+     * Constructs a planner for the layout of the given initial state.
+     */
+    private LpaStarSearch(Node startGame) {
+        this.numOfRow = startGame.board.length;
+        this.numOfCol = startGame.board[0].length;
+        this.neighbors = Node.neighbors(this.numOfRow, this.numOfCol);
+        this.priceOfMove = prices(startGame);
+        this.start = vertex(layout(startGame));
+        char[] goalTiles = new char[this.numOfRow * this.numOfCol];
+        for (int i = 0; i < goalTiles.length - 1; i++) {
+            goalTiles[i] = (char) (i + 1);
+        }
+        this.goal = vertex(goalTiles);
+        this.start.rhs = 0;
+        enqueue(this.start);
+    }
+
+    /**
+     * Returns the planner of a puzzle: the one of the previous puzzle if it had the same dimensions
+     * and initial layout, with its prices updated, or a new one.
+     *
+     * @param previous  The planner of the previous puzzle of the run, or null.
+     * @param startGame The initial state of the puzzle.
+     * @return The planner.
+     */
+    static LpaStarSearch forPuzzle(LpaStarSearch previous, Node startGame) {
+        if (previous != null && previous.numOfRow == startGame.board.length
+                && previous.numOfCol == startGame.board[0].length
+                && previous.start.key.equals(new String(layout(startGame)))) {
+            previous.updatePrices(prices(startGame));
+            return previous;
+        }
+        return new LpaStarSearch(startGame);
+    }
+
+    /**
+     * Finds the optimal path of the layout graph with the current prices and replays it on the
+     * puzzle.
+     *
+     * @param algorithm The algorithm instance, used for A* when the white blocks run out of moves.
+     * @param startGame The initial state of the puzzle.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @return A string that describes the solution path, the number of nodes generated and the cost
+     *         of the solution, or "no path" if the goal state is not reachable.
+     */
+    String solve(Algorithm algorithm, Node startGame, int[][] goal) {
+        this.created = 0;
+        computeShortestPath(algorithm);
+        if (Double.isInfinite(this.goal.g)) {
+            return "no path" + "\n" + "Num: " + (Node.totalNodes() + this.created) + "\nCost:";
+        }
+        // Walk back from the goal through the predecessors that give every g value
+        List<Byte> moves = new ArrayList<>();
+        for (Vertex v = this.goal; v != this.start; ) {
+            Vertex best = null;
+            byte bestMove = Node.NONE;
+            for (byte op = 0; op < 4; op++) {
+                int target = this.neighbors[v.blank][op];
+                if (target < 0) {
+                    continue;
+                }
+                Vertex u = neighbor(v, target);
+                if (best == null || u.g + cost(u, v) < best.g + cost(best, v)) {
+                    best = u;
+                    // From u the block at v's empty space moves back, so the empty space goes to v.blank
+                    bestMove = (byte) (op ^ 2);
+                }
+            }
+            moves.add(bestMove);
+            v = best;
+        }
+        Node current = startGame;
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            current = current.Move(moves.get(i));
+            if (current == null) {
+                // The layout graph does not know the remaining moves of the white blocks
+                return algorithm.aStar(startGame, goal);
+            }
+        }
+        if (current.path.isEmpty()) {
+            return "\nNum: " + (Node.totalNodes() + this.created) + "\nCost: 0";
+        }
+        String finalPath = current.path.substring(0, current.path.length() - 1);
+        return finalPath + "\n" + "Num: " + (Node.totalNodes() + this.created) + "\n" + "Cost: " + current.g;
+    }
+
+    /**
+     * Changes the prices of the blocks. Only the layouts in which a block whose price changed stands
+     * next to the empty space have an incoming edge whose cost changed, so only they are updated.
+     * The heuristic depends on the prices, so every queued layout is queued again with a new key.
+     */
+    private void updatePrices(int[] prices) {
+        boolean[] changed = new boolean[prices.length];
+        boolean any = false;
+        for (int value = 0; value < prices.length; value++) {
+            changed[value] = prices[value] != this.priceOfMove[value];
+            any |= changed[value];
+        }
+        if (!any) {
+            return;
+        }
+        this.priceOfMove = prices;
+        List<Vertex> affected = new ArrayList<>();
+        for (Vertex v : this.vertices.values()) {
+            v.h = Double.NaN;
+            for (byte op = 0; op < 4; op++) {
+                int target = this.neighbors[v.blank][op];
+                if (target >= 0 && changed[v.tiles[target]]) {
+                    affected.add(v);
+                    break;
+                }
+            }
+        }
+        for (Vertex v : affected) {
+            updateVertex(v);
+        }
+        List<Vertex> queued = new ArrayList<>();
+        for (Entry entry : this.queue) {
+            if (entry.vertex.entry == entry) {
+                queued.add(entry.vertex);
+            }
+        }
+        this.queue.clear();
+        for (Vertex v : queued) {
+            enqueue(v);
+        }
+    }
+
+    /**
+     * Expands inconsistent layouts in key order until the goal layout is consistent and no queued
+     * layout has a smaller key.
+     */
+    private void computeShortestPath(Algorithm algorithm) {
+        while (true) {
+            algorithm.checkCancelled();
+            Entry top = this.queue.peek();
+            while (top != null && top.vertex.entry != top) {
+                this.queue.poll(); // Outdated entry
+                top = this.queue.peek();
+            }
+            double goalK2 = Math.min(this.goal.g, this.goal.rhs);
+            double goalK1 = goalK2 + heuristic(this.goal);
+            boolean topBelowGoal = top != null && (top.k1 < goalK1 || (top.k1 == goalK1 && top.k2 < goalK2));
+            if (!topBelowGoal && this.goal.rhs == this.goal.g) {
+                return;
+            }
+            if (top == null) {
+                return; // Every reachable layout is consistent
+            }
+            this.queue.poll();
+            Vertex u = top.vertex;
+            u.entry = null;
+            if (algorithm.openFlag) {
+                System.out.println(u);
+            }
+            if (u.g > u.rhs) {
+                u.g = u.rhs;
+                for (byte op = 0; op < 4; op++) {
+                    int target = this.neighbors[u.blank][op];
+                    if (target >= 0) {
+                        updateVertex(neighbor(u, target));
+                    }
+                }
+            } else {
+                u.g = Double.POSITIVE_INFINITY;
+                updateVertex(u);
+                for (byte op = 0; op < 4; op++) {
+                    int target = this.neighbors[u.blank][op];
+                    if (target >= 0) {
+                        updateVertex(neighbor(u, target));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalculates the rhs value of a layout from its neighbors and queues it if it is inconsistent.
+     */
+    private void updateVertex(Vertex v) {
+        if (v != this.start) {
+            double rhs = Double.POSITIVE_INFINITY;
+            for (byte op = 0; op < 4; op++) {
+                int target = this.neighbors[v.blank][op];
+                if (target >= 0) {
+                    Vertex u = neighbor(v, target);
+                    rhs = Math.min(rhs, u.g + cost(u, v));
+                }
+            }
+            v.rhs = rhs;
+        }
+        v.entry = null;
+        if (v.g != v.rhs) {
+            enqueue(v);
+        }
+    }
+
+    /**
+     * Queues a layout with its current key.
+     */
+    private void enqueue(Vertex v) {
+        double k2 = Math.min(v.g, v.rhs);
+        v.entry = new Entry(v, k2 + heuristic(v), k2);
+        this.queue.add(v.entry);
+    }
+
+    /**
+     * Returns the cost of the edge between two neighboring layouts: the price of the block that
+     * moves, which stands in the first layout where the second one has its empty space.
+     */
+    private double cost(Vertex from, Vertex to) {
+        return this.priceOfMove[from.tiles[to.blank]];
+    }
+
+    /**
+     * Returns the weighted Manhattan Distance of a layout under the current prices, without the
+     * remaining moves of the white blocks.
+     */
+    private double heuristic(Vertex v) {
+        if (Double.isNaN(v.h)) {
+            double h = 0;
+            for (int position = 0; position < v.tiles.length; position++) {
+                int value = v.tiles[position];
+                if (value != 0) {
+                    int d = Math.abs((value - 1) / this.numOfCol - position / this.numOfCol)
+                            + Math.abs((value - 1) % this.numOfCol - position % this.numOfCol);
+                    h += (double) d * this.priceOfMove[value];
+                }
+            }
+            v.h = h;
+        }
+        return v.h;
+    }
+
+    /**
+     * Returns the layout reached from v by moving the block at target into the empty space.
+     */
+    private Vertex neighbor(Vertex v, int target) {
+        char[] tiles = v.tiles.clone();
+        tiles[v.blank] = tiles[target];
+        tiles[target] = 0;
+        return vertex(tiles);
+    }
+
+    /**
+     * Returns the layout with the given tiles, creating it on first use.
+     */
+    private Vertex vertex(char[] tiles) {
+        String key = new String(tiles);
+        Vertex v = this.vertices.get(key);
+        if (v == null) {
+            v = new Vertex(tiles, key);
+            this.vertices.put(key, v);
+            this.created++;
+        }
+        return v;
+    }
+
+    /**
+     * Returns the block values of a node, one char per cell.
+     */
+    private static char[] layout(Node node) {
+        int numOfCol = node.board[0].length;
+        char[] tiles = new char[node.board.length * numOfCol];
+        for (int i = 0; i < node.board.length; i++) {
+            for (int j = 0; j < numOfCol; j++) {
+                tiles[i * numOfCol + j] = (char) node.board[i][j].getValue();
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the price of moving every block of a node, indexed by the block value.
+     */
+    private static int[] prices(Node node) {
+        int[] prices = new int[node.board.length * node.board[0].length];
+        for (Block[] blocks : node.board) {
+            for (Block block : blocks) {
+                prices[block.getValue()] = block.getPriceOfMove();
+            }
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The maximum of several heuristics, evaluated lazily. The maximum of admissible heuristics is
+ * admissible and at least as strong as each of them, but evaluating all of them costs the sum of
+ * their costs. When the caller passes a cutoff (see {@link Heuristic#evaluate(Node, int[][], double)})
+ * the evaluation stops as soon as one heuristic exceeds it, since the child is pruned whatever the
+ * remaining heuristics say.
+ *
+ * The heuristics are evaluated in the order they were given, which should be from the cheapest to
+ * the most expensive, except that the heuristic that gave the largest value most often so far is
+ * evaluated first. A new instance is created for every puzzle, so this is learned per puzzle.
+ */
+public class MaxHeuristic implements Heuristic {
+    // Number of evaluations between two choices of the heuristic evaluated first
+    private static final int REORDER_INTERVAL = 1024;
+
+    // The combined heuristics, from the cheapest to the most expensive
+    private final Heuristic[] heuristics;
+    // Number of evaluations in which each heuristic gave the largest value
+    private final long[] wins;
+    // The index of the heuristic evaluated first
+    private int leader;
+    // Number of evaluations since the leader was chosen
+    private int sinceReorder;
+
+    /**
+     * Constructs the maximum of the given heuristics.
+     *
+     * @param heuristics The heuristics to combine, from the cheapest to the most expensive.
+     */
+    public MaxHeuristic(Heuristic... heuristics) {
+        this.heuristics = heuristics;
+        this.wins = new long[heuristics.length];
+    }
+
+    @Override
+    public double evaluate(Node node, int[][] goal) {
+        return evaluate(node, goal, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double evaluate(Node node, int[][] goal, double cutoff) {
+        double best = this.heuristics[this.leader].evaluate(node, goal, cutoff);
+        int winner = this.leader;
+        for (int i = 0; i < this.heuristics.length && best <= cutoff; i++) {
+            if (i != this.leader) {
+                double value = this.heuristics[i].evaluate(node, goal, cutoff);
+                if (value > best) {
+                    best = value;
+                    winner = i;
+                }
+            }
+        }
+        this.wins[winner]++;
+        if (++this.sinceReorder == REORDER_INTERVAL) {
+            this.sinceReorder = 0;
+            for (int i = 0; i < this.wins.length; i++) {
+                if (this.wins[i] > this.wins[this.leader]) {
+                    this.leader = i;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * A history table for ordering the moves of the depth-first searches. Every (position of the
+ * empty space, operator) pair has a score: a move loses a point when the bound of the search cuts
+ * its child off, and in IDA* scores one when its child stays within the threshold. DFBnB starts
+ * without a bound, so every child would score there; instead the moves of every path that improves
+ * the best solution score SOLUTION_BONUS points. {@link Successors} tries the moves with the highest
+ * score first, and breaks ties by its estimate of the child's h or f.
+ *
+ * IDA* learns during an iteration but orders its moves by the scores of the previous iterations,
+ * published at the start of every iteration, so the order within one iteration never changes. The
+ * iterations below the final threshold are exhaustive and generate the same nodes in any order; in
+ * the final iteration, usually the largest, the moves that led deepest before are tried first.
+ * DFBnB makes a single pass and orders its moves by the scores learned so far.
+ */
+public class MoveHistory {
+    // Points a move on the path of an improved solution scores
+    static final int SOLUTION_BONUS = 16;
+    // Largest score before all the scores are halved
+    private static final int MAX_SCORE = 1 << 30;
+
+    // Scores being learned, by position of the empty space * 4 + operator
+    final int[] learned;
+    // Scores the moves are ordered by; the learned array itself if the scores are not deferred
+    final int[] published;
+
+    /**
+     * Constructs an empty history table.
+     *
+     * @param cells    The number of cells of the board.
+     * @param deferred true to order the moves by the scores of the last call to publish() only.
+     */
+    public MoveHistory(int cells, boolean deferred) {
+        this.learned = new int[cells * 4];
+        this.published = deferred ? new int[cells * 4] : this.learned;
+    }
+
+    /**
+     * Returns the score the moves are ordered by.
+     *
+     * @param blank    The position (row * numOfCol + col) of the empty space.
+     * @param operator The operator.
+     */
+    int score(int blank, byte operator) {
+        return this.published[blank * 4 + operator];
+    }
+
+    /**
+     * Makes the scores learned so far the ones the moves are ordered by.
+     */
+    void publish() {
+        if (this.published != this.learned) {
+            System.arraycopy(this.learned, 0, this.published, 0, this.learned.length);
+        }
+    }
+
+    /**
+     * Records that the last child returned by an iterator stays within the bound of the search.
+     */
+    void success(Successors successors) {
+        add(successors, 1);
+    }
+
+    /**
+     * Records that the bound of the search cut off the last child returned by an iterator.
+     */
+    void cutoff(Successors successors) {
+        add(successors, -1);
+    }
+
+    /**
+     * Records that the moves of the current path lead to an improved solution.
+     *
+     * @param path The successor iterators of the path, the last move of each one being on it.
+     */
+    void solution(Iterable<Successors> path) {
+        for (Successors successors : path) {
+            add(successors, SOLUTION_BONUS);
+        }
+    }
+
+    private void add(Successors successors, int points) {
+        Node parent = successors.parent;
+        int blank = parent.underscoreIndex[0] * parent.board[0].length + parent.underscoreIndex[1];
+        int i = blank * 4 + successors.lastOperator();
+        this.learned[i] += points;
+        if (Math.abs(this.learned[i]) > MAX_SCORE) {
+            // Halve everything, which keeps the order and lets recent results weigh more
+            for (int j = 0; j < this.learned.length; j++) {
+                this.learned[j] /= 2;
+            }
+        }
+    }
+}
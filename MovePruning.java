@@ -0,0 +1,287 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A finite-state machine over the operators that rejects the moves completing a known redundant
+ * move sequence, so the depth-first searches prune short cycles and transpositions without any
+ * hash lookup. The state of the machine after the path of a node is kept in Node.pruneState (0 at
+ * the initial state), and the next state of every move is one lookup in a table.
+ *
+ * The redundant sequences are found once per board dimension by a breadth-first search over move
+ * sequences, in order of length and then of operator, on a grid around the empty space. A sequence
+ * is redundant if an earlier sequence ends in the same arrangement (the effect of a sequence only
+ * depends on where the empty space goes, not on the block values), keeps the empty space within the
+ * rows and columns the sequence itself visits, and moves every block at most as many times. On the
+ * board, the earlier sequence then applies wherever the redundant one does, costs no more for any
+ * prices, and leaves every white block at least as many moves, so it reaches a state at least as
+ * good. Sequences that contain a redundant one are not extended, so every sequence found is minimal,
+ * and the sequences are compiled into an Aho-Corasick automaton. A sequence undoing its last move is
+ * never generated, since Node.Move already rejects it.
+ */
+public class MovePruning {
+    // The next state of a move that completes a redundant sequence
+    static final int PRUNED = -1;
+    // Length of the longest redundant sequence looked for
+    static final int MAX_LENGTH = 12;
+    // Automata by board dimension, see forBoard
+    private static final Map<String, MovePruning> AUTOMATA = new ConcurrentHashMap<>();
+
+    // Next state by state * 4 + operator, or PRUNED
+    private final int[] next;
+    // Number of redundant sequences the automaton rejects
+    final int numOfSequences;
+
+    /**
+     * A move sequence of the breadth-first search and its effect.
+     */
+    private static class Sequence {
+        // The operators of the sequence
+        byte[] moves;
+        // The origin cell of the block on every cell of the grid
+        char[] grid;
+        // The number of times the block from every origin cell moved
+        byte[] counts;
+        // The cell of the empty space
+        int blank;
+        // The rows and columns the empty space visited
+        int minRow, maxRow, minCol, maxCol;
+
+        /**
+         * Returns true if this earlier sequence is at least as good as a later one with the same effect.
+         */
+        boolean dominates(Sequence later) {
+            if (this.minRow < later.minRow || this.maxRow > later.maxRow
+                    || this.minCol < later.minCol || this.maxCol > later.maxCol) {
+                return false;
+            }
+            for (int i = 0; i < this.counts.length; i++) {
+                if (this.counts[i] > later.counts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the automaton of a board dimension, building it on first use.
+     *
+     * @param numOfRow The number of rows of the board.
+     * @param numOfCol The number of columns of the board.
+     * @return The automaton of the board.
+     */
+    static MovePruning forBoard(int numOfRow, int numOfCol) {
+        return AUTOMATA.computeIfAbsent(numOfRow + "x" + numOfCol, k -> new MovePruning(numOfRow, numOfCol));
+    }
+
+    /**
+     * Finds the redundant sequences of a board dimension and compiles them.
+     */
+    private MovePruning(int numOfRow, int numOfCol) {
+        List<byte[]> sequences = findRedundant(numOfRow, numOfCol);
+        this.numOfSequences = sequences.size();
+        this.next = compile(sequences);
+    }
+
+    /**
+     * Returns the state after a move, or PRUNED if the move completes a redundant sequence.
+     *
+     * @param state    The state before the move.
+     * @param operator The operator of the move.
+     */
+    int next(int state, byte operator) {
+        return this.next[state * 4 + operator];
+    }
+
+    /**
+     * Runs the breadth-first search over move sequences and returns the minimal redundant ones.
+     */
+    private static List<byte[]> findRedundant(int numOfRow, int numOfCol) {
+        // The grid lets the empty space go anywhere on the board from any cell
+        int rows = 2 * numOfRow - 1;
+        int cols = 2 * numOfCol - 1;
+        Sequence empty = new Sequence();
+        empty.moves = new byte[0];
+        empty.grid = new char[rows * cols];
+        for (int i = 0; i < empty.grid.length; i++) {
+            empty.grid[i] = (char) i;
+        }
+        empty.counts = new byte[rows * cols];
+        empty.blank = (numOfRow - 1) * cols + numOfCol - 1;
+        empty.minRow = empty.maxRow = numOfRow - 1;
+        empty.minCol = empty.maxCol = numOfCol - 1;
+
+        Map<String, List<Sequence>> byEffect = new HashMap<>(); // The kept sequences by their effect
+        byEffect.computeIfAbsent(key(empty), k -> new ArrayList<>()).add(empty);
+        Set<String> redundant = new HashSet<>(); // The redundant sequences, as operator digits
+        List<byte[]> found = new ArrayList<>();
+        ArrayDeque<Sequence> queue = new ArrayDeque<>();
+        queue.add(empty);
+        while (!queue.isEmpty()) {
+            Sequence parent = queue.poll();
+            if (parent.moves.length == MAX_LENGTH) {
+                continue;
+            }
+            for (byte operator = Node.LEFT; operator <= Node.DOWN; operator++) {
+                int length = parent.moves.length;
+                if (length > 0 && parent.moves[length - 1] == (operator ^ 2)) {
+                    continue; // Undoing the last move
+                }
+                Sequence child = move(parent, operator, numOfRow, numOfCol);
+                if (child == null) {
+                    continue; // The empty space leaves every board this sequence could start on
+                }
+                String digits = digits(child.moves);
+                if (containsRedundant(digits, redundant)) {
+                    continue;
+                }
+                List<Sequence> same = byEffect.computeIfAbsent(key(child), k -> new ArrayList<>());
+                boolean dominated = false;
+                for (Sequence earlier : same) {
+                    if (earlier.dominates(child)) {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (dominated) {
+                    redundant.add(digits);
+                    found.add(child.moves);
+                } else {
+                    same.add(child);
+                    queue.add(child);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the sequence of a parent followed by one move on the grid, or null if the empty space
+     * would visit more rows or columns than the board has.
+     */
+    private static Sequence move(Sequence parent, byte operator, int numOfRow, int numOfCol) {
+        int cols = 2 * numOfCol - 1;
+        int row = parent.blank / cols;
+        int col = parent.blank % cols;
+        // The same directions as Node.Move: the block moving LEFT was right of the empty space
+        switch (operator) {
+            case Node.LEFT: col++; break;
+            case Node.UP: row++; break;
+            case Node.RIGHT: col--; break;
+            default: row--; break;
+        }
+        if (Math.max(parent.maxRow, row) - Math.min(parent.minRow, row) >= numOfRow
+                || Math.max(parent.maxCol, col) - Math.min(parent.minCol, col) >= numOfCol) {
+            return null;
+        }
+        Sequence child = new Sequence();
+        child.moves = Arrays.copyOf(parent.moves, parent.moves.length + 1);
+        child.moves[parent.moves.length] = operator;
+        child.grid = parent.grid.clone();
+        child.counts = parent.counts.clone();
+        int target = row * cols + col;
+        char origin = child.grid[target];
+        child.grid[parent.blank] = origin;
+        child.grid[target] = parent.grid[parent.blank];
+        child.counts[origin]++;
+        child.blank = target;
+        child.minRow = Math.min(parent.minRow, row);
+        child.maxRow = Math.max(parent.maxRow, row);
+        child.minCol = Math.min(parent.minCol, col);
+        child.maxCol = Math.max(parent.maxCol, col);
+        return child;
+    }
+
+    /**
+     * Returns the effect of a sequence: the arrangement of the grid, the empty space included.
+     */
+    private static String key(Sequence sequence) {
+        return new String(sequence.grid);
+    }
+
+    private static String digits(byte[] moves) {
+        char[] chars = new char[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            chars[i] = (char) ('0' + moves[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns true if a suffix of a sequence is a redundant sequence. Its other substrings are
+     * substrings of its prefix, which was kept.
+     */
+    private static boolean containsRedundant(String digits, Set<String> redundant) {
+        for (int start = 0; start < digits.length() - 1; start++) {
+            if (redundant.contains(digits.substring(start))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the transition table of the Aho-Corasick automaton of the redundant sequences. The
+     * states are the prefixes of the sequences in a trie; a missing move follows the failure link,
+     * the longest proper suffix that is also a state.
+     */
+    private static int[] compile(List<byte[]> sequences) {
+        List<int[]> trie = new ArrayList<>(); // Child states by operator, -1 for none
+        List<Boolean> accepting = new ArrayList<>();
+        trie.add(new int[]{-1, -1, -1, -1});
+        accepting.add(false);
+        for (byte[] sequence : sequences) {
+            int state = 0;
+            for (byte operator : sequence) {
+                if (trie.get(state)[operator] < 0) {
+                    trie.get(state)[operator] = trie.size();
+                    trie.add(new int[]{-1, -1, -1, -1});
+                    accepting.add(false);
+                }
+                state = trie.get(state)[operator];
+            }
+            accepting.set(state, true);
+        }
+
+        int[] table = new int[trie.size() * 4];
+        int[] fail = new int[trie.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int operator = 0; operator < 4; operator++) {
+            int child = trie.get(0)[operator];
+            table[operator] = Math.max(child, 0);
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        // Breadth-first, so the failure state of a state is always done before it
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (accepting.get(fail[state])) {
+                accepting.set(state, true);
+            }
+            for (int operator = 0; operator < 4; operator++) {
+                int child = trie.get(state)[operator];
+                if (child < 0) {
+                    table[state * 4 + operator] = table[fail[state] * 4 + operator];
+                } else {
+                    fail[child] = table[fail[state] * 4 + operator];
+                    table[state * 4 + operator] = child;
+                    queue.add(child);
+                }
+            }
+        }
+        for (int i = 0; i < table.length; i++) {
+            if (accepting.get(table[i])) {
+                table[i] = PRUNED;
+            }
+        }
+        return table;
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Represents a state in the puzzle game, encapsulating a board configuration of NxM-1 blocks.
  * This class serves as a model node for implementing search algorithms such as
@@ -5,10 +8,22 @@
  * Depth-Bounded Depth-First Search (DBnB).
  */
 public class Node {
+    // The operators, encoded as the direction in which a block moves into the empty space.
+    // The reverse of an operator is always operator ^ 2.
+    static final byte LEFT = 0, UP = 1, RIGHT = 2, DOWN = 3;
+    // Marks a node that was not generated by a move
+    static final byte NONE = -1;
+    // Names of the operators, indexed by operator
+    static final String[] OPERATOR_NAMES = {"LEFT", "UP", "RIGHT", "DOWN"};
+    // Path suffixes of the operators, indexed by operator
+    static final String[] PATH_SUFFIX = {"L-", "U-", "R-", "D-"};
+    // Neighbor tables by board dimension, see neighbors(int, int)
+    private static final Map<Integer, int[][]> NEIGHBORS = new ConcurrentHashMap<>();
+
     // Path taken to reach the current state from the initial state
     String path;
-    // The last move of the current state.
-    String lastMove;
+    // The last move of the current state, or NONE.
+    byte lastMove;
     // A unique key representing the state configuration.
     String key;
     // Cost to reach this state from the initial state
@@ -17,16 +32,20 @@ public class Node {
     double h;
     // Estimated total cost (f = g + h) to reach the goal state from the initial state through this state
     double f;
+    // Components of the heuristic value that a heuristic keeps to update it incrementally, or null
+    int[] hParts;
+    // The hParts of the parent when the node was generated by a move, or null
+    int[] parentHParts;
+    // The state of the MovePruning automaton after the moves of the path, 0 at the initial state
+    int pruneState;
     // Symbolizes if the state is marked
     boolean isOut;
     // The board configuration.
     Block[][] board;
-    // Children nodes generated from this state by applying possible moves
-    Node[] children;
     // The index of the empty space (underscore) on the board.
     int[] underscoreIndex;
-    // The
-    static  int totalNodes = 0;
+    // Number of nodes generated by the search running on each thread
+    private static final ThreadLocal<int[]> TOTAL_NODES = ThreadLocal.withInitial(() -> new int[1]);
 
     /**
      * Default constructor.
@@ -34,11 +53,10 @@ public class Node {
     public Node(){
         this.board = null;
         this.path = "";
-        this.lastMove = "";
+        this.lastMove = NONE;
         this.key = "";
         this.g = 0;
         this.isOut = false;
-        this.children = new Node[4];
         this.underscoreIndex = new int[2];
         this.underscoreIndex[0] = -1;
         this.underscoreIndex[1] = -1;
@@ -55,9 +73,8 @@ public class Node {
         Block[][] tmp = new Block[board.length][board[0].length];
         // Initialize default values
         this.path = "";
-        this.lastMove = "";
+        this.lastMove = NONE;
         this.g = 0;
-        this.children = new Node[4];
         this.underscoreIndex = new int[2];
         // Copy board and find the empty space if present
         for (int i = 0; i < board.length; i++){
@@ -73,6 +90,29 @@ public class Node {
         this.key = this.makeKey();
         this.isOut = false;
     }
+    /**
+     * Returns the number of nodes generated by moves on the current thread since the last reset.
+     * Every search runs on a single thread, so this is the number of nodes it generated.
+     */
+    static int totalNodes() {
+        return TOTAL_NODES.get()[0];
+    }
+
+    /**
+     * Resets the number of nodes generated on the current thread, before a new search starts.
+     */
+    static void resetTotalNodes() {
+        TOTAL_NODES.get()[0] = 0;
+    }
+
+    /**
+     * Sets the number of nodes generated on the current thread, when a search continues from a
+     * checkpoint (see {@link SearchCheckpoint}).
+     */
+    static void restoreTotalNodes(int count) {
+        TOTAL_NODES.get()[0] = count;
+    }
+
     /**
      * Retrieves the unique key of the current node.
      * @return The unique key of the node as a String.
@@ -122,7 +162,6 @@ public class Node {
      * - The cost (g) to reach the current node.
      * - The board configuration.
      * - The underscore index, indicating the position of the special block.
-     * - The children nodes, recursively deep copied.
      *
      * @return A new Node instance that is a complete deep copy of the current node.
      */
@@ -131,6 +170,9 @@ public class Node {
         copy.path = this.path; // Copying simple fields directly
         copy.lastMove = this.lastMove;
         copy.g = this.g;
+        copy.hParts = this.hParts;
+        copy.parentHParts = this.parentHParts;
+        copy.pruneState = this.pruneState;
 
         // Cloning the underscoreIndex array to ensure changes do not affect the original
         if (this.underscoreIndex != null) {
@@ -152,108 +194,136 @@ public class Node {
     }
 
     /**
-     * Attempts to move a block in the specified direction if the move is valid.
-     * Valid operators are "LEFT", "RIGHT", "UP", and "DOWN". The method checks the feasibility
-     * of the move based on the current empty space (underscore) position.
-     * @param operator The direction in which to move the block ("LEFT", "RIGHT", "UP", "DOWN").
-     * @return true if the move is successful and false otherwise. A move is considered successful
-     *         if it results in a valid state transition according to the game's rules.
+     * Returns the neighbor table of a board dimension. For every position of the empty space
+     * (row * numOfCol + col) and every operator, the table holds the position of the block that
+     * moves into the empty space, or -1 if there is no such block. Tables are built once per
+     * dimension and shared by all nodes.
+     *
+     * @param numOfRow The number of rows of the board.
+     * @param numOfCol The number of columns of the board.
+     * @return The neighbor table, indexed by [position][operator].
      */
-    public boolean Move(String operator){
-        boolean res = false; // Flag to indicate if the move was successful
-        int flag = 0; // Used to index into the children array after a successful move
-        Node child = this.deepCopy();
-
-        // Attempt to move left unless the last move was right and the operator is available (in the range)
-        if(operator.equals("LEFT")) {
-            if (!this.lastMove.equals("RIGHT")) {
-                if ((0 <= this.underscoreIndex[1] + 1) && (this.underscoreIndex[1] + 1 < this.board[0].length)) {
-                    // Update the child node with the results of the move
-                    res = true;
-                    child.underscoreIndex[1]++;
-                    updateChildAfterMove(child, "LEFT", "L-");
+    static int[][] neighbors(int numOfRow, int numOfCol) {
+        return NEIGHBORS.computeIfAbsent((numOfRow << 16) | numOfCol, k -> {
+            int[][] table = new int[numOfRow * numOfCol][4];
+            for (int row = 0; row < numOfRow; row++) {
+                for (int col = 0; col < numOfCol; col++) {
+                    int[] targets = table[row * numOfCol + col];
+                    targets[LEFT] = col + 1 < numOfCol ? row * numOfCol + col + 1 : -1;
+                    targets[UP] = row + 1 < numOfRow ? (row + 1) * numOfCol + col : -1;
+                    targets[RIGHT] = col - 1 >= 0 ? row * numOfCol + col - 1 : -1;
+                    targets[DOWN] = row - 1 >= 0 ? (row - 1) * numOfCol + col : -1;
                 }
             }
+            return table;
+        });
+    }
+
+    /**
+     * Checks whether a move is valid without building the child. A move is rejected if it undoes
+     * the last move, leaves the board, or moves a white block with no moves left.
+     * @param operator The direction in which to move the block (LEFT, UP, RIGHT, DOWN).
+     * @return The position (row * numOfCol + col) of the block that would move into the empty
+     *         space, or -1 if the move is not valid.
+     */
+    public int canMove(byte operator){
+        // Never undo the last move
+        if (this.lastMove == (operator ^ 2)) {
+            return -1;
         }
-        // Attempt to move up unless the last move was up and the operator is available (in the range)
-        else if(operator.equals("UP")) {
-                if (!this.lastMove.equals("DOWN")) {
-                    if ((0 <= this.underscoreIndex[0] + 1) && (this.underscoreIndex[0] + 1 < this.board.length)) {
-                        // Update the child node with the results of the move
-                        res = true;
-                        child.underscoreIndex[0]++;
-                        flag = 1;
-                        updateChildAfterMove(child, "UP", "U-");
-                    }
-                }
+        int numOfCol = this.board[0].length;
+        int target = neighbors(this.board.length, numOfCol)[this.underscoreIndex[0] * numOfCol + this.underscoreIndex[1]][operator];
+        if (target < 0) {
+            return -1;
         }
-        // Attempt to move right unless the last move was left and the operator is available (in the range)
-        else if(operator.equals("RIGHT")) {
-                if (!this.lastMove.equals("LEFT")) {
-                    if ((0 <= this.underscoreIndex[1] - 1) && (this.underscoreIndex[1] - 1 < this.board[0].length)) {
-                        // Update the child node with the results of the move
-                        res = true;
-                        child.underscoreIndex[1]--;
-                        flag = 2;
-                        updateChildAfterMove(child, "RIGHT", "R-");
-                    }
-                }
+        // A white block can only move while it has moves left
+        Block moved = this.board[target / numOfCol][target % numOfCol];
+        if (moved.isWhite() && moved.getNumOfMove() <= 0) {
+            return -1;
         }
-        // Attempt to move down unless the last move was up and the operator is available (in the range)
-        else if(operator.equals("DOWN")) {
-                if (!this.lastMove.equals("UP")) {
-                    if ((0 <= this.underscoreIndex[0] - 1) && (this.underscoreIndex[0] - 1 < this.board.length)) {
-                        // Update the child node with the results of the move
-                        res = true;
-                        child.underscoreIndex[0]--;
-                        flag = 3;
-                        updateChildAfterMove(child, "DOWN", "D-");
-                    }
-                }
+        return target;
+    }
+
+    /**
+     * Attempts to move a block in the specified direction if the move is valid.
+     * Valid operators are LEFT, UP, RIGHT and DOWN. The target block is looked up in the neighbor
+     * table of the board dimension, and nothing is allocated for an invalid move (see canMove).
+     * The child shares every row and block of this node that the move does not change, and this
+     * node keeps no reference to it.
+     * @param operator The direction in which to move the block (LEFT, UP, RIGHT, DOWN).
+     * @return The new state if the move is valid, null otherwise.
+     */
+    public Node Move(byte operator){
+        int target = canMove(operator);
+        if (target < 0) {
+            return null;
         }
-        //If the operator is available and the last move does not become the current move
-        if(res){
-            //Check if the goal block is white and have a number of move available,
-            // if true reducing the number of move
-            if(child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].getColor().equals("white")){
-                if(child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].getNumOfMove() > 0){
-                    child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].setNumOfMove(child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].getNumOfMove() -1);
-                }
-                else
-                    return false;
-            }
-            // Update the current state after successful the move
-            child.g = this.g + child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].getPriceOfMove();
-            this.swapBlocks(child);
-            child.setKey(child.makeKey());
-            totalNodes ++;
-            this.children[flag] = child;
+        int numOfCol = this.board[0].length;
+        int blankRow = this.underscoreIndex[0];
+        int blankCol = this.underscoreIndex[1];
+        int row = target / numOfCol;
+        int col = target % numOfCol;
+        Block moved = this.board[row][col];
+        if (moved.isWhite()) {
+            moved = new Block(moved);
+            moved.setNumOfMove(moved.getNumOfMove() - 1);
+        }
+
+        // Build the child, copying only the rows the move changes
+        Node child = new Node();
+        child.board = this.board.clone();
+        child.board[blankRow] = this.board[blankRow].clone();
+        if (row != blankRow) {
+            child.board[row] = this.board[row].clone();
         }
-        return res;
+        child.board[blankRow][blankCol] = moved;
+        child.board[row][col] = this.board[blankRow][blankCol];
+        child.underscoreIndex[0] = row;
+        child.underscoreIndex[1] = col;
+        child.g = this.g + moved.getPriceOfMove();
+        child.lastMove = operator;
+        child.parentHParts = this.hParts;
+        child.path = this.path + moved.getValue() + PATH_SUFFIX[operator];
+        child.setKey(child.makeKey());
+        TOTAL_NODES.get()[0]++;
+        return child;
     }
 
     /**
-     * Helper method to update child node after a successful move.
-     * Updates the path, lastMove, and underscoreIndex of the child node.
+     * Returns the successors of this node, built lazily in the given order.
      *
-     * @param child The child node to update.
-     * @param move The move that was made ("LEFT", "UP", "RIGHT", "DOWN").
-     * @param pathSuffix The suffix to append to the path representing the move.
+     * @param ordering Successors.FIXED or Successors.BY_H.
+     * @return An iterator over the valid children of this node.
      */
-    private void updateChildAfterMove(Node child, String move, String pathSuffix) {
-        String valueBlock = String.valueOf(child.board[child.underscoreIndex[0]][child.underscoreIndex[1]].getValue());
-        child.path = this.path + valueBlock + pathSuffix;
-        child.lastMove = move;
+    public Successors successors(int ordering) {
+        return new Successors(this, ordering);
     }
+
+    /**
+     * Returns the successors of this node, built lazily in the order of a history table and
+     * without the moves that complete a redundant move sequence.
+     *
+     * @param ordering Successors.FIXED or Successors.BY_H, for ties.
+     * @param history  The history table, or null to use the ordering alone.
+     * @param pruning  The automaton of the redundant move sequences, or null to keep every move.
+     * @return An iterator over the valid children of this node.
+     */
+    public Successors successors(int ordering, MoveHistory history, MovePruning pruning) {
+        return new Successors(this, ordering, history, pruning);
+    }
+
     /**
-     * Helper method to swap the empty space with the moved block in the child node.
+     * Returns the successors of this node, built lazily in the order of their f under a heuristic,
+     * then of a history table, and without the moves that complete a redundant move sequence.
      *
-     * @param child The child node where the swap will be performed.
+     * @param heuristic The heuristic of the search.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @param history   The history table, or null to use the f order alone.
+     * @param pruning   The automaton of the redundant move sequences, or null to keep every move.
+     * @return A lazy iterator over the children, see {@link Successors}.
      */
-    private void swapBlocks(Node child) {
-        Block tmp = new Block(child.board[child.underscoreIndex[0]][child.underscoreIndex[1]]);
-        child.board[child.underscoreIndex[0]][child.underscoreIndex[1]] = child.board[this.underscoreIndex[0]][this.underscoreIndex[1]];
-        child.board[this.underscoreIndex[0]][this.underscoreIndex[1]] = tmp;
+    public Successors successors(Heuristic heuristic, int[][] goal, MoveHistory history, MovePruning pruning) {
+        return new Successors(this, heuristic, goal, history, pruning);
     }
 
     /**
@@ -270,6 +340,6 @@ public class Node {
             }
             matrix.append("\n");
         }
-        return "\nThis node number: "+ Node.totalNodes +"\npath= " + this.path + "\n"+ matrix;
+        return "\nThis node number: "+ Node.totalNodes() +"\npath= " + this.path + "\n"+ matrix;
     }
 }
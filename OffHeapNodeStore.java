@@ -0,0 +1,336 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Stores the open list and the closed set of an A* search outside the Java heap. Every generated
+ * state is kept as a fixed-width record in a direct buffer:
+ * packed state | g (int) | f (double) | parent record (int) | last move (byte) | closed flag (byte).
+ * The open-addressing index from packed states to records, two int slots per record, and the open
+ * list, a binary heap of (f, record) entries, are kept in two more regions of the same buffer, so
+ * the store puts nothing on the Java heap that grows with the number of states.
+ *
+ * The buffer is sized by a memory budget and is handed back to a pool of one arena when the store
+ * is closed, so consecutive solves reuse the same native memory instead of allocating new buffers.
+ * The pooled arena is kept for the rest of the process; one that is too small for a larger budget
+ * is dropped and freed by the garbage collector like any other direct buffer.
+ */
+public class OffHeapNodeStore implements AutoCloseable {
+    // Size in bytes of one heap entry: f (double) and record index (int)
+    private static final int HEAP_ENTRY_SIZE = 12;
+    // Number of index slots per record, so the index is at most half full
+    private static final int SLOTS_PER_RECORD = 2;
+    // The arena handed back by the last closed store, reused by the next one that fits in it
+    private static ByteBuffer pooledArena;
+
+    // Size in bytes of one packed state
+    private final int stateSize;
+    // Offsets of the fields inside a record
+    private final int gOffset, fOffset, parentOffset, moveOffset, closedOffset;
+    // Size in bytes of one record
+    private final int recordSize;
+    // The whole arena, records followed by the heap region
+    private ByteBuffer arena;
+    // View of the arena holding the records
+    private ByteBuffer records;
+    // View of the arena holding the open list heap
+    private ByteBuffer heap;
+    // View of the arena holding the open-addressing index: per slot, record index + 1 or 0 if empty
+    private ByteBuffer index;
+    // Maximal number of records and heap entries that fit in the budget
+    private final int maxRecords, maxHeapEntries;
+    // Number of slots of the index
+    private final int numOfSlots;
+    // Number of records and heap entries in use
+    private int numOfRecords, heapSize;
+
+    /**
+     * Constructs a store for states of the given packed size within the given memory budget.
+     * Four fifths of the budget are used for the records and their index and the rest for the
+     * open list heap.
+     *
+     * @param stateSize    The size in bytes of one packed state.
+     * @param budgetBytes  The number of bytes of native memory the store may use.
+     */
+    public OffHeapNodeStore(int stateSize, long budgetBytes) {
+        this.stateSize = stateSize;
+        this.gOffset = stateSize;
+        this.fOffset = this.gOffset + 4;
+        this.parentOffset = this.fOffset + 8;
+        this.moveOffset = this.parentOffset + 4;
+        this.closedOffset = this.moveOffset + 1;
+        this.recordSize = this.closedOffset + 1;
+
+        int capacity = (int) Math.min(budgetBytes, Integer.MAX_VALUE - 8);
+        int recordBytes = (int) (capacity * 4L / 5);
+        this.maxRecords = recordBytes / (this.recordSize + SLOTS_PER_RECORD * 4);
+        this.numOfSlots = this.maxRecords * SLOTS_PER_RECORD;
+        int indexStart = this.maxRecords * this.recordSize;
+        this.maxHeapEntries = (capacity - recordBytes) / HEAP_ENTRY_SIZE;
+
+        this.arena = acquire(capacity);
+        this.records = this.arena.duplicate().position(0).limit(indexStart).slice();
+        this.index = this.arena.duplicate().position(indexStart).limit(indexStart + this.numOfSlots * 4).slice();
+        this.heap = this.arena.duplicate().position(recordBytes).limit(capacity).slice();
+        // A reused arena still holds the index of the previous store, two slots to a long
+        for (int i = 0; i < this.index.capacity(); i += 8) {
+            this.index.putLong(i, 0);
+        }
+    }
+
+    /**
+     * Returns an arena of at least the given capacity, the pooled one when it is large enough.
+     */
+    private static synchronized ByteBuffer acquire(int capacity) {
+        ByteBuffer arena = pooledArena;
+        pooledArena = null;
+        if (arena == null || arena.capacity() < capacity) {
+            arena = ByteBuffer.allocateDirect(capacity);
+        }
+        return arena.clear();
+    }
+
+    /**
+     * Hands an arena back to the pool, in place of the one it holds.
+     */
+    private static synchronized void release(ByteBuffer arena) {
+        if (pooledArena == null || pooledArena.capacity() < arena.capacity()) {
+            pooledArena = arena;
+        }
+    }
+
+    /**
+     * Adds a new record for a state that is not in the store yet.
+     *
+     * @param state    The packed state, of length stateSize.
+     * @param g        The cost to reach the state.
+     * @param f        The estimated total cost through the state.
+     * @param parent   The record index of the parent state, or -1 for the initial state.
+     * @param lastMove The index of the operator that generated the state, or -1 for none.
+     * @return The record index of the new state.
+     * @throws IllegalStateException If the memory budget is exhausted.
+     */
+    public int add(byte[] state, int g, double f, int parent, byte lastMove) {
+        if (this.numOfRecords == this.maxRecords) {
+            throw new IllegalStateException("off-heap budget exhausted after " + this.numOfRecords + " states");
+        }
+        int record = this.numOfRecords++;
+        int base = record * this.recordSize;
+        this.records.put(base, state, 0, this.stateSize);
+        this.records.put(base + this.closedOffset, (byte) 0);
+        update(record, g, f, parent, lastMove);
+        int slot = slot(state);
+        while (this.index.getInt(slot * 4) != 0) {
+            slot = nextSlot(slot);
+        }
+        this.index.putInt(slot * 4, record + 1);
+        return record;
+    }
+
+    /**
+     * Looks up the record of a packed state.
+     *
+     * @param state The packed state to look for.
+     * @return The record index of the state, or -1 if the state is not in the store.
+     */
+    public int find(byte[] state) {
+        int slot = slot(state);
+        int entry;
+        while ((entry = this.index.getInt(slot * 4)) != 0) {
+            if (sameState(entry - 1, state)) {
+                return entry - 1;
+            }
+            slot = nextSlot(slot);
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the cost values, parent and last move of an existing record.
+     */
+    public void update(int record, int g, double f, int parent, byte lastMove) {
+        int base = record * this.recordSize;
+        this.records.putInt(base + this.gOffset, g);
+        this.records.putDouble(base + this.fOffset, f);
+        this.records.putInt(base + this.parentOffset, parent);
+        this.records.put(base + this.moveOffset, lastMove);
+    }
+
+    /**
+     * Copies the packed state of a record into the given array.
+     */
+    public void readState(int record, byte[] dst) {
+        this.records.get(record * this.recordSize, dst, 0, this.stateSize);
+    }
+
+    /**
+     * Returns the cost to reach the state of a record.
+     */
+    public int g(int record) {
+        return this.records.getInt(record * this.recordSize + this.gOffset);
+    }
+
+    /**
+     * Returns the estimated total cost through the state of a record.
+     */
+    public double f(int record) {
+        return this.records.getDouble(record * this.recordSize + this.fOffset);
+    }
+
+    /**
+     * Returns the record index of the parent of a record, or -1 for the initial state.
+     */
+    public int parent(int record) {
+        return this.records.getInt(record * this.recordSize + this.parentOffset);
+    }
+
+    /**
+     * Returns the index of the operator that generated the state of a record, or -1 for none.
+     */
+    public byte lastMove(int record) {
+        return this.records.get(record * this.recordSize + this.moveOffset);
+    }
+
+    /**
+     * Returns true if the record has been moved to the closed set.
+     */
+    public boolean isClosed(int record) {
+        return this.records.get(record * this.recordSize + this.closedOffset) != 0;
+    }
+
+    /**
+     * Moves a record to the closed set.
+     */
+    public void markClosed(int record) {
+        this.records.put(record * this.recordSize + this.closedOffset, (byte) 1);
+    }
+
+    /**
+     * Returns the number of records in the store.
+     */
+    public int size() {
+        return this.numOfRecords;
+    }
+
+    /**
+     * Adds a record to the open list with its current f value. A record whose f value is lowered
+     * is simply pushed again; the outdated entry is skipped when it reaches the top of the heap.
+     *
+     * @param record The record index to push.
+     * @throws IllegalStateException If the memory budget is exhausted.
+     */
+    public void push(int record) {
+        if (this.heapSize == this.maxHeapEntries) {
+            throw new IllegalStateException("off-heap budget exhausted after " + this.heapSize + " open entries");
+        }
+        double f = f(record);
+        int i = this.heapSize++;
+        // Sift the new entry up
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            double parentF = this.heap.getDouble(parent * HEAP_ENTRY_SIZE);
+            if (parentF <= f) {
+                break;
+            }
+            copyEntry(parent, i);
+            i = parent;
+        }
+        writeEntry(i, f, record);
+    }
+
+    /**
+     * Removes and returns the open record with the lowest f value, skipping closed records and
+     * entries whose f value is outdated.
+     *
+     * @return The record index, or -1 if the open list is empty.
+     */
+    public int poll() {
+        while (this.heapSize > 0) {
+            double f = this.heap.getDouble(0);
+            int record = this.heap.getInt(8);
+            this.heapSize--;
+            if (this.heapSize > 0) {
+                siftDown(this.heap.getDouble(this.heapSize * HEAP_ENTRY_SIZE),
+                        this.heap.getInt(this.heapSize * HEAP_ENTRY_SIZE + 8));
+            }
+            if (!isClosed(record) && f == f(record)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the arena of the store to the pool. The store must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (this.arena != null) {
+            release(this.arena);
+            this.arena = null;
+            this.records = null;
+            this.heap = null;
+            this.index = null;
+        }
+    }
+
+    private void siftDown(double f, int record) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= this.heapSize) {
+                break;
+            }
+            double childF = this.heap.getDouble(child * HEAP_ENTRY_SIZE);
+            if (child + 1 < this.heapSize) {
+                double rightF = this.heap.getDouble((child + 1) * HEAP_ENTRY_SIZE);
+                if (rightF < childF) {
+                    child++;
+                    childF = rightF;
+                }
+            }
+            if (f <= childF) {
+                break;
+            }
+            copyEntry(child, i);
+            i = child;
+        }
+        writeEntry(i, f, record);
+    }
+
+    private void copyEntry(int from, int to) {
+        writeEntry(to, this.heap.getDouble(from * HEAP_ENTRY_SIZE), this.heap.getInt(from * HEAP_ENTRY_SIZE + 8));
+    }
+
+    private void writeEntry(int i, double f, int record) {
+        this.heap.putDouble(i * HEAP_ENTRY_SIZE, f);
+        this.heap.putInt(i * HEAP_ENTRY_SIZE + 8, record);
+    }
+
+    private boolean sameState(int record, byte[] state) {
+        int base = record * this.recordSize;
+        for (int i = 0; i < this.stateSize; i++) {
+            if (this.records.get(base + i) != state[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first index slot of a packed state, mapping its hash onto the slots.
+     */
+    private int slot(byte[] state) {
+        return (int) (((hash(state) & 0xFFFFFFFFL) * this.numOfSlots) >>> 32);
+    }
+
+    private int nextSlot(int slot) {
+        return slot + 1 == this.numOfSlots ? 0 : slot + 1;
+    }
+
+    private static int hash(byte[] state) {
+        int h = 0x811C9DC5;
+        for (byte b : state) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Races several search configurations against each other on the same puzzle. No single algorithm
+ * is the best choice for every puzzle: IDA* is hopeless when many paths lead to the same states,
+ * and A* runs out of memory on deep puzzles. Every configuration runs on its own thread with its
+ * own heuristic instance, and the first answer is returned. Both algorithms are complete and, with
+ * an admissible heuristic, optimal: they only answer "no path" after exhausting the reachable
+ * states, so the first answer is the optimal one or a proof that there is no path. The other
+ * searches are then interrupted. DFBnB is not raced, since its initial bound may cut off every
+ * solution, and its "no path" proves nothing.
+ *
+ * The searches share one budget of nodes they may keep in memory, so a search whose open list grows
+ * too large fails and leaves the memory to the others. A search that fails does not end the race;
+ * only when all of them fail is the failure reported instead of an answer.
+ */
+public class PortfolioSearch {
+    // The configurations of the race if no heuristic is given: the algorithm and the heuristic names
+    private static final String[][] CONFIGURATIONS = {{"IDA*", "WLC,WD"}, {"A*", "WLC"}};
+    // The algorithms of the race if a heuristic is given
+    private static final String[] ALGORITHMS = {"IDA*", "A*"};
+    // Estimated heap size in bytes of one kept node, used to turn the heap size into a node budget
+    private static final long BYTES_PER_NODE = 512;
+
+    // The algorithm instance that started the race, providing the dimensions and the flags
+    private final Algorithm algorithm;
+
+    /**
+     * Constructs a portfolio search.
+     *
+     * @param algorithm The algorithm instance that started the race.
+     */
+    public PortfolioSearch(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Runs every configuration on its own thread and returns the first answer.
+     *
+     * @param startGame The initial state of the puzzle.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @return The answer of the first configuration to finish, followed by a line naming it, or
+     *         "all searches failed" if every configuration failed.
+     */
+    public String solve(Node startGame, int[][] goal) {
+        // Half of the heap is shared by the searches, the rest is left for the garbage collector
+        AtomicLong budget = new AtomicLong(Runtime.getRuntime().maxMemory() / 2 / BYTES_PER_NODE);
+        String[][] configurations = configurations();
+        ExecutorService executor = Executors.newFixedThreadPool(configurations.length, task -> {
+            Thread thread = new Thread(task, "portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (String[] configuration : configurations) {
+            tasks.add(() -> run(configuration, startGame, goal, budget));
+        }
+        try {
+            return executor.invokeAny(tasks);
+        } catch (ExecutionException e) {
+            System.err.println("An error occurred: every search of the portfolio failed, the last one with: "
+                    + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return "all searches failed" + "\n" + "Num: " + Node.totalNodes() + "\nCost:";
+    }
+
+    /**
+     * Returns the configurations of the race: the heuristic given for the run in every algorithm,
+     * or the default configurations.
+     */
+    private String[][] configurations() {
+        if (this.algorithm.heuristicName == null) {
+            return CONFIGURATIONS;
+        }
+        String[][] configurations = new String[ALGORITHMS.length][];
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            configurations[i] = new String[]{ALGORITHMS[i], this.algorithm.heuristicName};
+        }
+        return configurations;
+    }
+
+    /**
+     * Runs one configuration on the current thread.
+     */
+    private String run(String[] configuration, Node startGame, int[][] goal, AtomicLong budget) {
+        Node.resetTotalNodes();
+        Algorithm worker = new Algorithm(configuration[0], this.algorithm.timeFlag, false,
+                goal.length, goal[0].length);
+        worker.setHeuristic(Heuristic.forName(configuration[1]));
+        worker.nodeBudget = budget;
+        try {
+            // Every search sets the cost values of its initial node, so each one gets its own copy
+            String res = worker.startGame(startGame.deepCopy(), goal);
+            return res + "\n" + "Portfolio: " + configuration[0] + " with " + configuration[1];
+        } finally {
+            budget.addAndGet(worker.reservedNodes);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Holds one puzzle as it is read from an input file: the algorithm and the flags to run it with,
+ * the board dimensions, the blocks in row-major order (0 for the empty space) and the white blocks
+ * with their number of moves. It is the common form of the text and the binary input formats.
+ */
+public class PuzzleInstance {
+    // The name of the algorithm to be used
+    String algorithm;
+    // Flag to indicate if timing information should be reported
+    boolean timeFlag;
+    // Flag to indicate if open list details should be printed
+    boolean openFlag;
+    // The board dimensions
+    int numOfRow, numOfCol;
+    // The block values in row-major order, 0 for the empty space
+    int[] tiles;
+    // The values of the white blocks and their number of moves, in the same order
+    int[] whiteValues, whiteMoves;
+
+    /**
+     * Constructs a puzzle instance.
+     *
+     * @param algorithm   The name of the algorithm to be used.
+     * @param timeFlag    Indicates whether the time taken should be reported.
+     * @param openFlag    Indicates whether the open list should be printed.
+     * @param numOfRow    The number of rows of the board.
+     * @param numOfCol    The number of columns of the board.
+     * @param tiles       The block values in row-major order, 0 for the empty space.
+     * @param whiteValues The values of the white blocks.
+     * @param whiteMoves  The number of moves of each white block, in the order of whiteValues.
+     */
+    public PuzzleInstance(String algorithm, boolean timeFlag, boolean openFlag, int numOfRow, int numOfCol,
+                          int[] tiles, int[] whiteValues, int[] whiteMoves) {
+        this.algorithm = algorithm;
+        this.timeFlag = timeFlag;
+        this.openFlag = openFlag;
+        this.numOfRow = numOfRow;
+        this.numOfCol = numOfCol;
+        this.tiles = tiles;
+        this.whiteValues = whiteValues;
+        this.whiteMoves = whiteMoves;
+    }
+
+    /**
+     * Creates the board of {@link Block} objects of this puzzle. White blocks cost 1 per move and
+     * have their number of moves set; red blocks cost 30 per move and have no move limit.
+     *
+     * @return A 2D array of {@link Block} objects representing the board.
+     * @throws IllegalArgumentException If a block or a white block is not a value of the board.
+     */
+    public Block[][] toBoard() {
+        // Index the white blocks by value so each cell is a single lookup
+        int[] moves = new int[this.tiles.length];
+        Arrays.fill(moves, -1);
+        for (int i = 0; i < this.whiteValues.length; i++) {
+            if (this.whiteValues[i] <= 0 || this.whiteValues[i] >= moves.length) {
+                throw new IllegalArgumentException("white block " + this.whiteValues[i] + " is not on a "
+                        + this.numOfRow + "x" + this.numOfCol + " board");
+            }
+            moves[this.whiteValues[i]] = this.whiteMoves[i];
+        }
+        Block[][] board = new Block[this.numOfRow][this.numOfCol];
+        for (int i = 0; i < this.numOfRow; i++) {
+            for (int j = 0; j < this.numOfCol; j++) {
+                int value = this.tiles[i * this.numOfCol + j];
+                if (value < 0 || value >= moves.length) {
+                    throw new IllegalArgumentException("block " + value + " does not fit a "
+                            + this.numOfRow + "x" + this.numOfCol + " board");
+                }
+                Block block = new Block(value, "red");
+                if (moves[value] >= 0) {
+                    block.setWhite(true);
+                    block.setNumOfMove(moves[value]);
+                    block.setPriceOfMove(1);
+                } else {
+                    block.setNumOfMove(-1);
+                    block.setPriceOfMove(30);
+                }
+                board[i][j] = block;
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,449 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic snapshots of a long search in a compact binary file, so a run that was stopped after
+ * hours continues where it was instead of starting over.
+ *
+ * The search asks due() at every step; only every CHECK_EVERY calls does it look at the clock, and
+ * only once the interval has passed is a snapshot taken. The search thread only copies what may
+ * change as it goes on: the references of the open and stored nodes of A*, which are not modified
+ * once generated, or the few numbers of IDA*. A writer thread packs the records into a direct
+ * buffer, reused while they fit, and writes it through a FileChannel to a temporary file that is
+ * then moved over the checkpoint file, so the file on disk is always a complete snapshot. One
+ * snapshot is written at a time: due() is false while the writer is busy, and the interval counts
+ * from the end of the last write.
+ *
+ * A snapshot starts with a header naming the search, the configuration (algorithm and heuristic)
+ * and the packed initial state, and is only loaded back by the same search of the same puzzle:
+ *   IDA*: the threshold of the current iteration, the smallest f above it seen so far, the number
+ *         of generated nodes and, for every level of the current path, how many children of that
+ *         level were taken. The path is replayed on resume and the finished branches are skipped.
+ *         With history ordering, the history table is saved too, so the path is replayed in the
+ *         same order.
+ *   A*:   the number of generated nodes, the open list (packed state, g, h, last move and path of
+ *         every node, the path as its length and ASCII bytes) and the nodes of its DominanceStore
+ *         (packed state, g and last move).
+ */
+public class SearchCheckpoint {
+    // First bytes of every checkpoint file, "PZC1"
+    private static final int MAGIC = 0x505A4331;
+    // Kind of a snapshot of idaStar
+    static final byte IDA_STAR = 1;
+    // Kind of a snapshot of aStar
+    static final byte A_STAR = 2;
+    // Number of calls to due() between two looks at the clock
+    private static final int CHECK_EVERY = 4096;
+
+    // The checkpoint file
+    private final Path file;
+    // The temporary file a snapshot is written to before it is moved over the checkpoint file
+    private final Path tmpFile;
+    // Time between two snapshots, in nanoseconds
+    private final long intervalNanos;
+    // The algorithm, heuristic and ordering names, checked on resume
+    private final String configuration;
+    // Packs the states of the puzzle
+    private final StateCodec codec;
+    // The packed initial state, checked on resume
+    private final byte[] start;
+    // True to continue from the checkpoint file if it belongs to this search
+    private final boolean resume;
+    // False if the checkpoint file belongs to another puzzle and must be left alone
+    private boolean enabled = true;
+    // True once this search wrote or loaded the checkpoint file, set by the writer thread too
+    private volatile boolean owned;
+    // Time the last snapshot was written, see System.nanoTime
+    private volatile long lastSnapshot = System.nanoTime();
+    // Calls to due() since the last look at the clock
+    private int calls;
+    // Writes the snapshots off the search thread, created with the first one
+    private ExecutorService writer;
+    // The snapshot being written, or null
+    private Future<?> pending;
+    // The direct buffer of the snapshots of the writer thread, reused while they fit, or null
+    private ByteBuffer buffer;
+
+    /**
+     * Snapshot of idaStar, see loadIdaStar.
+     */
+    static class IdaStarProgress {
+        // The threshold of the current iteration
+        double threshold;
+        // The smallest f above the threshold seen so far in the iteration
+        double minF;
+        // The number of nodes generated so far
+        int nodes;
+        // The number of nodes generated before the current iteration
+        int iterationStart;
+        // For every level of the current path, the number of children taken from it
+        int[] taken;
+    }
+
+    /**
+     * Constructs the checkpoints of one search.
+     *
+     * @param file           The checkpoint file.
+     * @param intervalMillis The time between two snapshots, in milliseconds.
+     * @param resume         true to continue from the checkpoint file if it belongs to this search.
+     * @param configuration  The algorithm and heuristic names, only a checkpoint of the same
+     *                       configuration is loaded.
+     * @param startGame      The initial state of the puzzle.
+     */
+    public SearchCheckpoint(Path file, long intervalMillis, boolean resume, String configuration, Node startGame) {
+        this.file = file;
+        this.tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.resume = resume;
+        this.configuration = configuration;
+        this.codec = new StateCodec(startGame);
+        this.start = this.codec.pack(startGame);
+    }
+
+    /**
+     * Returns true if it is time for a snapshot. Cheap enough to be called at every step.
+     */
+    boolean due() {
+        if (++this.calls < CHECK_EVERY) {
+            return false;
+        }
+        this.calls = 0;
+        return this.enabled && (this.pending == null || this.pending.isDone())
+                && System.nanoTime() - this.lastSnapshot >= this.intervalNanos;
+    }
+
+    /**
+     * Takes a snapshot of idaStar.
+     *
+     * @param threshold      The threshold of the current iteration.
+     * @param minF           The smallest f above the threshold seen so far in the iteration.
+     * @param iterationStart The number of nodes generated before the current iteration.
+     * @param L              The successor iterators of the current path, the deepest first.
+     * @param history        The history table the moves are ordered by, or null.
+     */
+    void saveIdaStar(double threshold, double minF, int iterationStart, Deque<Successors> L, MoveHistory history) {
+        int historySize = history == null ? 0 : history.learned.length;
+        // Small enough to be copied on the search thread
+        ByteBuffer body = ByteBuffer.allocate(8 + 8 + 4 + 4 + 4 + L.size() + 4 + 8 * historySize);
+        body.putDouble(threshold);
+        body.putDouble(minF);
+        body.putInt(Node.totalNodes());
+        body.putInt(iterationStart);
+        body.putInt(L.size());
+        for (Iterator<Successors> it = L.descendingIterator(); it.hasNext(); ) {
+            body.put((byte) it.next().taken());
+        }
+        body.putInt(historySize);
+        for (int i = 0; i < historySize; i++) {
+            body.putInt(history.published[i]);
+            body.putInt(history.learned[i]);
+        }
+        submit(() -> write(IDA_STAR, body.flip()));
+    }
+
+    /**
+     * Returns the snapshot of idaStar to continue from, or null to start over.
+     *
+     * @param history Receives the saved history table, or null if the moves are not ordered by one.
+     */
+    IdaStarProgress loadIdaStar(MoveHistory history) {
+        DataInputStream in = load(IDA_STAR);
+        if (in == null) {
+            return null;
+        }
+        try (in) {
+            IdaStarProgress progress = new IdaStarProgress();
+            progress.threshold = in.readDouble();
+            progress.minF = in.readDouble();
+            progress.nodes = in.readInt();
+            progress.iterationStart = in.readInt();
+            progress.taken = new int[in.readInt()];
+            for (int i = 0; i < progress.taken.length; i++) {
+                progress.taken[i] = in.readUnsignedByte();
+            }
+            int historySize = in.readInt();
+            if (historySize != (history == null ? 0 : history.learned.length)) {
+                return null;
+            }
+            for (int i = 0; i < historySize; i++) {
+                history.published[i] = in.readInt();
+                history.learned[i] = in.readInt();
+            }
+            return progress;
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Takes a snapshot of aStar.
+     *
+     * @param openList The open list, where the nodes marked out are skipped.
+     * @param stored   The DominanceStore of the search, holding the open and closed nodes.
+     */
+    void saveAStar(Collection<Node> openList, DominanceStore stored) {
+        int nodes = Node.totalNodes();
+        Node[] open = openList.toArray(new Node[0]);
+        Node[] closed = stored.toArray();
+        submit(() -> {
+            // The search goes on marking nodes out, so they are looked at once, and a node marked
+            // out after that is saved anyway and pruned as a duplicate on resume
+            int numOfOpen = 0;
+            long pathBytes = 0;
+            for (Node node : open) {
+                if (!node.isOut) {
+                    open[numOfOpen++] = node;
+                    pathBytes += node.path.length();
+                }
+            }
+            int stateSize = this.codec.stateSize;
+            ByteBuffer body = allocate(4 + 4 + (long) numOfOpen * (stateSize + 4 + 8 + 1 + 4) + pathBytes
+                    + 4 + (long) closed.length * (stateSize + 4 + 1));
+            if (body == null) {
+                return;
+            }
+            byte[] state = new byte[stateSize];
+            body.putInt(nodes);
+            body.putInt(numOfOpen);
+            for (int n = 0; n < numOfOpen; n++) {
+                Node node = open[n];
+                this.codec.pack(node, state, 0);
+                body.put(state);
+                body.putInt(node.g);
+                body.putDouble(node.h);
+                body.put(node.lastMove);
+                // A path only holds digits, the operator letters and dashes, one byte each
+                String path = node.path;
+                body.putInt(path.length());
+                for (int i = 0; i < path.length(); i++) {
+                    body.put((byte) path.charAt(i));
+                }
+            }
+            body.putInt(closed.length);
+            for (Node node : closed) {
+                this.codec.pack(node, state, 0);
+                body.put(state);
+                body.putInt(node.g);
+                body.put(node.lastMove);
+            }
+            write(A_STAR, body.flip());
+        });
+    }
+
+    /**
+     * Fills the open list and the store of aStar from its snapshot. The open nodes are stored first,
+     * so the copies of them among the stored nodes are pruned as duplicates.
+     *
+     * @param openList Receives the open list.
+     * @param stored   Receives the stored nodes.
+     * @return The number of nodes in the open list, or -1 if there is no snapshot to continue from.
+     *         The lists may then hold part of a snapshot that could not be read.
+     */
+    int loadAStar(PriorityQueue<Node> openList, DominanceStore stored) {
+        DataInputStream in = load(A_STAR);
+        if (in == null) {
+            return -1;
+        }
+        try (in) {
+            byte[] state = new byte[this.codec.stateSize];
+            int nodes = in.readInt();
+            int numOfOpen = in.readInt();
+            for (int i = 0; i < numOfOpen; i++) {
+                in.readFully(state);
+                Node node = this.codec.unpack(state, 0, in.readInt(), Node.NONE);
+                node.h = in.readDouble();
+                node.f = node.g + node.h;
+                node.lastMove = in.readByte();
+                byte[] path = new byte[in.readInt()];
+                in.readFully(path);
+                node.path = new String(path, StandardCharsets.US_ASCII);
+                openList.add(node);
+                stored.offer(node);
+            }
+            int numOfStored = in.readInt();
+            for (int i = 0; i < numOfStored; i++) {
+                in.readFully(state);
+                Node node = this.codec.unpack(state, 0, in.readInt(), Node.NONE);
+                node.lastMove = in.readByte();
+                stored.offer(node);
+            }
+            Node.restoreTotalNodes(nodes);
+            return numOfOpen;
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Ends the checkpoints of a search: deletes the temporary file of a snapshot that failed and,
+     * if the search finished, the checkpoint file, unless it belongs to another puzzle. A search
+     * that ended with an error keeps its checkpoint file to be resumed from.
+     *
+     * @param finished true if the search finished.
+     */
+    public void finish(boolean finished) {
+        if (this.writer != null) {
+            try {
+                this.pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("An error occurred: " + e.getCause().getMessage());
+            }
+            this.writer.shutdown();
+            this.writer = null;
+        }
+        try {
+            Files.deleteIfExists(this.tmpFile);
+            if (finished && this.owned) {
+                Files.deleteIfExists(this.file);
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hands a snapshot to the writer thread, which is started with the first one.
+     */
+    private void submit(Runnable snapshot) {
+        if (this.writer == null) {
+            this.writer = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.pending = this.writer.submit(snapshot);
+    }
+
+    /**
+     * Returns the direct buffer an A* snapshot is packed into, on the writer thread. The buffer of
+     * the previous snapshot is reused if the snapshot fits, since a direct buffer is only freed by a
+     * garbage collection; otherwise one is allocated with a quarter more room for the lists to grow.
+     *
+     * @param size The exact size of the snapshot after its header, in bytes.
+     * @return The buffer, limited to the size, or null if there is no memory for it and the
+     *         snapshot is skipped.
+     */
+    private ByteBuffer allocate(long size) {
+        try {
+            if (this.buffer != null && size <= this.buffer.capacity()) {
+                return this.buffer.clear().limit((int) size);
+            }
+            if (size <= Integer.MAX_VALUE) {
+                this.buffer = null;
+                this.buffer = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, size + size / 4));
+                return this.buffer.limit((int) size);
+            }
+        } catch (OutOfMemoryError e) {
+            // Not enough direct memory, see -XX:MaxDirectMemorySize
+        }
+        System.err.println("An error occurred: no memory for a snapshot of " + size + " bytes");
+        // A skipped snapshot is retried after the interval
+        this.lastSnapshot = System.nanoTime();
+        return null;
+    }
+
+    /**
+     * Writes a snapshot, on the writer thread: the header of this search and the body go to the
+     * temporary file, which is forced to disk and moved over the checkpoint file.
+     *
+     * @param kind The kind of the snapshot.
+     * @param body The snapshot after its header, ready to be read.
+     */
+    private void write(byte kind, ByteBuffer body) {
+        try {
+            try (FileChannel channel = FileChannel.open(this.tmpFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.wrap(header(kind));
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+                channel.force(false);
+            }
+            Files.move(this.tmpFile, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            this.owned = true;
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+        }
+        // The interval counts from the end of the snapshot, and a snapshot that failed is also retried after it
+        this.lastSnapshot = System.nanoTime();
+    }
+
+    /**
+     * Returns the header of a snapshot of this search.
+     */
+    private byte[] header(byte kind) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(kind);
+        out.writeUTF(this.configuration);
+        out.writeShort(this.start.length);
+        out.write(this.start);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Opens the checkpoint file if it is to be continued from, and reads its header.
+     *
+     * @param kind The kind of snapshot the search expects.
+     * @return A stream positioned after the header, or null to start over.
+     */
+    private DataInputStream load(byte kind) {
+        if (!this.resume) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file), 1 << 16));
+            try {
+                if (in.readInt() == MAGIC && in.readByte() == kind && in.readUTF().equals(this.configuration)) {
+                    byte[] saved = new byte[in.readUnsignedShort()];
+                    in.readFully(saved);
+                    if (Arrays.equals(saved, this.start)) {
+                        this.owned = true;
+                        return in;
+                    }
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            in.close();
+            // The file belongs to another puzzle of the input, which will continue from it later
+            this.enabled = false;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("An error occurred: " + e.getMessage());
+        }
+        return null;
+    }
+}
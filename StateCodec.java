@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts puzzle states to and from a compact, fixed-width byte representation. A packed state
+ * holds one byte per board cell (the block value, 0 for the empty space) followed by budgetSize
+ * bytes per white block holding its remaining number of moves. The colors and prices of the blocks
+ * never change during a search, so they are kept once in the codec instead of in every packed state.
+ *
+ * The remaining moves only decrease, so the largest one of the initial state decides how many
+ * bytes (1, 2 or 4, big-endian) every budget takes. Boards of more than 256 cells are rejected,
+ * since their block values do not fit in one byte.
+ */
+public class StateCodec {
+    // Number of rows of the board
+    final int numOfRow;
+    // Number of columns of the board
+    final int numOfCol;
+    // Values of the white blocks, in ascending order
+    final int[] whiteValues;
+    // Maps a block value to its index in whiteValues, or -1 for red blocks
+    final int[] whiteSlot;
+    // Price of moving each block, indexed by the block value
+    final int[] priceOfMove;
+    // Size in bytes of the remaining moves of one white block
+    final int budgetSize;
+    // Size in bytes of one packed state
+    final int stateSize;
+
+    /**
+     * Constructs a codec for states derived from the given initial node. The white blocks and the
+     * move prices are taken from the initial board.
+     *
+     * @param start The initial state of the puzzle.
+     */
+    public StateCodec(Node start) {
+        this.numOfRow = start.board.length;
+        this.numOfCol = start.board[0].length;
+        int cells = this.numOfRow * this.numOfCol;
+        this.whiteSlot = new int[cells];
+        this.priceOfMove = new int[cells];
+        List<Integer> whites = new ArrayList<>();
+        int maxBudget = 0;
+        for (int value = 0; value < cells; value++) {
+            this.whiteSlot[value] = -1;
+        }
+        for (Block[] blocks : start.board) {
+            for (Block block : blocks) {
+                this.priceOfMove[block.getValue()] = block.getPriceOfMove();
+                if (block.isWhite()) {
+                    whites.add(block.getValue());
+                    maxBudget = Math.max(maxBudget, block.getNumOfMove());
+                }
+            }
+        }
+        whites.sort(null);
+        this.whiteValues = new int[whites.size()];
+        for (int i = 0; i < this.whiteValues.length; i++) {
+            this.whiteValues[i] = whites.get(i);
+            this.whiteSlot[this.whiteValues[i]] = i;
+        }
+        this.budgetSize = maxBudget <= 0xFF ? 1 : maxBudget <= 0xFFFF ? 2 : 4;
+        this.stateSize = cells + this.whiteValues.length * this.budgetSize;
+    }
+
+    /**
+     * Writes the packed form of a node into the given array.
+     *
+     * @param node   The node to pack.
+     * @param dst    The destination array.
+     * @param offset The index in dst at which the packed state starts.
+     * @throws IllegalArgumentException If the board has more than 256 cells.
+     */
+    public void pack(Node node, byte[] dst, int offset) {
+        int cells = this.numOfRow * this.numOfCol;
+        if (cells > 256) {
+            throw new IllegalArgumentException("boards of more than 256 cells cannot be packed");
+        }
+        for (int i = 0; i < this.numOfRow; i++) {
+            for (int j = 0; j < this.numOfCol; j++) {
+                Block block = node.board[i][j];
+                dst[offset + i * this.numOfCol + j] = (byte) block.getValue();
+                int slot = this.whiteSlot[block.getValue()];
+                if (slot >= 0) {
+                    setBudget(dst, offset, slot, block.getNumOfMove());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the packed form of a node in a newly allocated array.
+     *
+     * @param node The node to pack.
+     * @return The packed state.
+     */
+    public byte[] pack(Node node) {
+        byte[] state = new byte[this.stateSize];
+        pack(node, state, 0);
+        return state;
+    }
+
+    /**
+     * Rebuilds a node from its packed form. The path of the returned node is empty and its cost is
+     * set to the given value.
+     *
+     * @param src      The array holding the packed state.
+     * @param offset   The index in src at which the packed state starts.
+     * @param g        The cost to reach the state from the initial state.
+     * @param lastMove The last move made to reach the state, or Node.NONE for none.
+     * @return A new node holding the unpacked state.
+     */
+    public Node unpack(byte[] src, int offset, int g, byte lastMove) {
+        Block[][] board = new Block[this.numOfRow][this.numOfCol];
+        for (int i = 0; i < this.numOfRow; i++) {
+            for (int j = 0; j < this.numOfCol; j++) {
+                int value = src[offset + i * this.numOfCol + j] & 0xFF;
+                int slot = this.whiteSlot[value];
+                Block block = new Block(value, "red");
+                block.setWhite(slot >= 0);
+                block.setPriceOfMove(this.priceOfMove[value]);
+                block.setNumOfMove(slot >= 0 ? budget(src, offset, slot) : -1);
+                board[i][j] = block;
+            }
+        }
+        Node node = new Node(board);
+        node.g = g;
+        node.lastMove = lastMove;
+        return node;
+    }
+
+    /**
+     * Returns the remaining moves of a white block in a packed state.
+     *
+     * @param src    The array holding the packed state.
+     * @param offset The index in src at which the packed state starts.
+     * @param slot   The index of the white block in whiteValues.
+     * @return The remaining number of moves.
+     */
+    public int budget(byte[] src, int offset, int slot) {
+        int position = offset + this.numOfRow * this.numOfCol + slot * this.budgetSize;
+        int budget = 0;
+        for (int i = 0; i < this.budgetSize; i++) {
+            budget = (budget << 8) | (src[position + i] & 0xFF);
+        }
+        return budget;
+    }
+
+    /**
+     * Writes the remaining moves of a white block into a packed state.
+     *
+     * @param dst    The array holding the packed state.
+     * @param offset The index in dst at which the packed state starts.
+     * @param slot   The index of the white block in whiteValues.
+     * @param budget The remaining number of moves.
+     */
+    public void setBudget(byte[] dst, int offset, int slot, int budget) {
+        int position = offset + this.numOfRow * this.numOfCol + slot * this.budgetSize;
+        for (int i = this.budgetSize - 1; i >= 0; i--) {
+            dst[position + i] = (byte) budget;
+            budget >>>= 8;
+        }
+    }
+
+    /**
+     * Returns the position (row * numOfCol + col) of the empty space in a packed state.
+     *
+     * @param src    The array holding the packed state.
+     * @param offset The index in src at which the packed state starts.
+     * @return The flat index of the empty space.
+     */
+    public int blankPosition(byte[] src, int offset) {
+        int cells = this.numOfRow * this.numOfCol;
+        for (int i = 0; i < cells; i++) {
+            if (src[offset + i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The optimal cost to the goal and the best move of every state of a small board, found once by an
+ * exhaustive search backwards from the goal state. A state is a permutation of the block values
+ * (0 for the empty space) over the cells, and is ranked by its Lehmer code, a perfect hash from the
+ * n! permutations of n cells to 0..n!-1. The table is a short per rank holding cost << 2 | move,
+ * where move is the operator that leads one step closer to the goal, and -1 for the states that
+ * cannot reach the goal.
+ *
+ * Moving a red block costs 30 and a white block costs 1, so the tables are built with Dijkstra's
+ * algorithm using a bucket queue, one bucket per cost modulo the largest price plus one, and a
+ * bitset of the settled ranks. The remaining moves of the white blocks are not part of the state,
+ * so the table gives the optimal path when the white blocks have moves enough; the caller checks
+ * that. Tables are kept per board dimension and set of white blocks, and only for boards of at most
+ * MAX_CELLS cells (10! ranks, about 7 MB per table).
+ *
+ * On a square board, transposing a state and relabeling every block with the goal value of its new
+ * cell maps the goal state onto itself and every move onto a move of the same block, so the board
+ * whose white blocks are the transposed ones has the same costs. Both boards share one table, kept
+ * under the smaller of their two signatures, and the other one reads it through a transposed view.
+ */
+public class StateSpaceTable {
+    // Largest number of cells of a board with a table
+    static final int MAX_CELLS = 10;
+    // Largest cost that fits in a table entry next to the move
+    private static final int MAX_COST = Short.MAX_VALUE >> 2;
+    // Built tables by board dimension and white blocks, see forBoard
+    private static final Map<String, StateSpaceTable> TABLES = new ConcurrentHashMap<>();
+    // Factorials of 0..MAX_CELLS
+    private static final int[] FACTORIAL = new int[MAX_CELLS + 1];
+
+    static {
+        FACTORIAL[0] = 1;
+        for (int i = 1; i <= MAX_CELLS; i++) {
+            FACTORIAL[i] = FACTORIAL[i - 1] * i;
+        }
+    }
+
+    // Number of rows of the board
+    private final int numOfRow;
+    // Number of columns of the board
+    private final int numOfCol;
+    // cost << 2 | move by rank, or -1 for the states that cannot reach the goal
+    private final short[] entries;
+    // True for the view of the table of the transposed board, see forBoard
+    private final boolean transposed;
+
+    /**
+     * Returns the table of a board, building it on first use.
+     *
+     * @param numOfRow    The number of rows of the board.
+     * @param numOfCol    The number of columns of the board.
+     * @param priceOfMove The price of moving every block, indexed by the block value.
+     * @return The table of the board.
+     */
+    static StateSpaceTable forBoard(int numOfRow, int numOfCol, int[] priceOfMove) {
+        String signature = numOfRow + "x" + numOfCol + Arrays.toString(priceOfMove);
+        if (numOfRow == numOfCol) {
+            int[] transposedPrices = new int[priceOfMove.length];
+            for (int value = 0; value < priceOfMove.length; value++) {
+                transposedPrices[transpose(value, numOfCol)] = priceOfMove[value];
+            }
+            String transposedSignature = numOfRow + "x" + numOfCol + Arrays.toString(transposedPrices);
+            if (transposedSignature.compareTo(signature) < 0) {
+                return new StateSpaceTable(TABLES.computeIfAbsent(transposedSignature,
+                        k -> new StateSpaceTable(numOfRow, numOfCol, transposedPrices)));
+            }
+        }
+        return TABLES.computeIfAbsent(signature, k -> new StateSpaceTable(numOfRow, numOfCol, priceOfMove));
+    }
+
+    /**
+     * Returns the label of a block on the transposed square board: the goal value of the cell its
+     * goal cell is transposed to. The empty space keeps the last cell and the value 0.
+     */
+    private static int transpose(int value, int numOfCol) {
+        if (value == 0) {
+            return 0;
+        }
+        int cell = value - 1;
+        return cell % numOfCol * numOfCol + cell / numOfCol + 1;
+    }
+
+    /**
+     * Constructs the transposed view of the table of a square board.
+     */
+    private StateSpaceTable(StateSpaceTable table) {
+        this.numOfRow = table.numOfRow;
+        this.numOfCol = table.numOfCol;
+        this.entries = table.entries;
+        this.transposed = true;
+    }
+
+    /**
+     * Builds the table of a board with Dijkstra's algorithm from the goal state.
+     */
+    private StateSpaceTable(int numOfRow, int numOfCol, int[] priceOfMove) {
+        this.numOfRow = numOfRow;
+        this.numOfCol = numOfCol;
+        this.transposed = false;
+        int cells = numOfRow * numOfCol;
+        int[][] neighbors = Node.neighbors(numOfRow, numOfCol);
+        this.entries = new short[FACTORIAL[cells]];
+        Arrays.fill(this.entries, (short) -1);
+        BitSet settled = new BitSet(FACTORIAL[cells]);
+        int maxPrice = 0;
+        for (int price : priceOfMove) {
+            maxPrice = Math.max(maxPrice, price);
+        }
+
+        // Bucket queue: the ranks reached with cost c wait in bucket c % buckets.length
+        int[][] buckets = new int[maxPrice + 1][16];
+        int[] bucketSize = new int[maxPrice + 1];
+        int[] goal = new int[cells];
+        for (int i = 0; i < cells - 1; i++) {
+            goal[i] = i + 1;
+        }
+        int goalRank = rank(goal);
+        this.entries[goalRank] = 0;
+        buckets[0][bucketSize[0]++] = goalRank;
+        int pending = 1;
+        int[] state = new int[cells];
+        for (int cost = 0; pending > 0; cost++) {
+            int b = cost % buckets.length;
+            for (int k = 0; k < bucketSize[b]; k++) {
+                int rank = buckets[b][k];
+                pending--;
+                if (settled.get(rank) || this.entries[rank] >> 2 != cost) {
+                    continue;
+                }
+                settled.set(rank);
+                unrank(rank, state);
+                int blank = 0;
+                while (state[blank] != 0) {
+                    blank++;
+                }
+                for (byte op = 0; op < 4; op++) {
+                    int target = neighbors[blank][op];
+                    if (target < 0) {
+                        continue;
+                    }
+                    int moved = state[target];
+                    state[blank] = moved;
+                    state[target] = 0;
+                    int next = rank(state);
+                    state[target] = moved;
+                    state[blank] = 0;
+                    int nextCost = cost + priceOfMove[moved];
+                    if (settled.get(next) || (this.entries[next] >= 0 && this.entries[next] >> 2 <= nextCost)) {
+                        continue;
+                    }
+                    if (nextCost > MAX_COST) {
+                        throw new IllegalStateException("cost " + nextCost + " does not fit in the table");
+                    }
+                    // From the new state the block moves back, so the empty space returns to blank
+                    this.entries[next] = (short) (nextCost << 2 | (op ^ 2));
+                    int nb = nextCost % buckets.length;
+                    if (bucketSize[nb] == buckets[nb].length) {
+                        buckets[nb] = Arrays.copyOf(buckets[nb], bucketSize[nb] * 2);
+                    }
+                    buckets[nb][bucketSize[nb]++] = next;
+                    pending++;
+                }
+            }
+            bucketSize[b] = 0;
+        }
+    }
+
+    /**
+     * Returns the optimal cost from the state of a node to the goal state, or -1 if the goal state
+     * cannot be reached from it.
+     */
+    int cost(Node node) {
+        short entry = this.entries[rank(node)];
+        return entry < 0 ? -1 : entry >> 2;
+    }
+
+    /**
+     * Returns the operator that leads from the state of a node one step closer to the goal state,
+     * or Node.NONE for the goal state and the states that cannot reach it.
+     */
+    byte bestMove(Node node) {
+        short entry = this.entries[rank(node)];
+        if (entry <= 0) {
+            return Node.NONE;
+        }
+        // Transposing swaps LEFT with UP and RIGHT with DOWN
+        return (byte) (this.transposed ? entry & 3 ^ 1 : entry & 3);
+    }
+
+    /**
+     * Returns the Lehmer rank of the state of a node, transposed for a transposed view.
+     */
+    int rank(Node node) {
+        int[] state = new int[this.numOfRow * this.numOfCol];
+        for (int i = 0; i < this.numOfRow; i++) {
+            for (int j = 0; j < this.numOfCol; j++) {
+                state[i * this.numOfCol + j] = this.transposed
+                        ? transpose(node.board[j][i].getValue(), this.numOfCol) : node.board[i][j].getValue();
+            }
+        }
+        return rank(state);
+    }
+
+    /**
+     * Returns the Lehmer rank of a permutation of 0..n-1: the sum over every position of the
+     * number of smaller values after it times the factorial of the number of positions after it.
+     */
+    static int rank(int[] state) {
+        int n = state.length;
+        int unused = (1 << n) - 1;
+        int rank = 0;
+        for (int i = 0; i < n; i++) {
+            int value = state[i];
+            // The values smaller than this one that are not used yet all come after it
+            rank += Integer.bitCount(unused & ((1 << value) - 1)) * FACTORIAL[n - 1 - i];
+            unused &= ~(1 << value);
+        }
+        return rank;
+    }
+
+    /**
+     * Writes the permutation of a Lehmer rank into the given array.
+     */
+    static void unrank(int rank, int[] state) {
+        int n = state.length;
+        int unused = (1 << n) - 1;
+        for (int i = 0; i < n; i++) {
+            int smaller = rank / FACTORIAL[n - 1 - i];
+            rank %= FACTORIAL[n - 1 - i];
+            // The value is the unused one with exactly 'smaller' unused values below it
+            int bits = unused;
+            for (int k = 0; k < smaller; k++) {
+                bits &= bits - 1;
+            }
+            int value = Integer.numberOfTrailingZeros(bits);
+            state[i] = value;
+            unused &= ~(1 << value);
+        }
+    }
+}
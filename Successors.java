@@ -0,0 +1,192 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the children of a node, building each child only when it is requested. The valid
+ * moves are found up front without allocating anything, ordered, and turned into nodes one at a
+ * time by {@link #next()}. A depth-first search that keeps one iterator per level can therefore
+ * prune a subtree, or tighten its bound, before the later siblings are ever built, and no node keeps
+ * references to its children.
+ *
+ * The BY_H order uses the change of the moved block's Manhattan Distance, weighted by its price, as
+ * a cheap estimate of the child's h, since it can be read from the board without building the
+ * child. The BY_F order uses the exact f of every child under the heuristic of the search: from
+ * {@link Heuristic#deltaF(Node, int)} when the heuristic can tell it without the child, otherwise by
+ * building and evaluating the child up front, in which case next() returns that child with its h
+ * and f already set (see lastEvaluated()). The children whose h is 0, which may be goals, come first
+ * in this order, so that a goal found among the children bounds the search of its siblings at once.
+ * Ties keep the operator order.
+ * With a {@link MoveHistory}, the moves with the highest history score come first and the order
+ * only breaks ties between equal scores.
+ */
+public class Successors implements Iterator<Node> {
+    // Children in operator order (LEFT, UP, RIGHT, DOWN)
+    static final int FIXED = 0;
+    // Children by increasing estimated h
+    static final int BY_H = 1;
+    // Children by increasing f, which needs the heuristic of the search
+    static final int BY_F = 2;
+
+    // The node whose children are generated
+    final Node parent;
+    // The valid operators in the order their children are returned
+    private final byte[] order = new byte[4];
+    // The children built up front to evaluate their f, by index in order, or null
+    private final Node[] built = new Node[4];
+    // Number of valid operators
+    private final int count;
+    // Index in order of the next child to build
+    private int next;
+    // The automaton of the redundant move sequences, or null
+    private final MovePruning pruning;
+
+    /**
+     * Constructs an iterator over the children of a node.
+     *
+     * @param parent   The node whose children are generated.
+     * @param ordering FIXED or BY_H.
+     */
+    public Successors(Node parent, int ordering) {
+        this(parent, ordering, null, null);
+    }
+
+    /**
+     * Constructs an iterator over the children of a node, ordered first by a history table and
+     * without the moves that an automaton of redundant move sequences rejects.
+     *
+     * @param parent   The node whose children are generated.
+     * @param ordering FIXED or BY_H, breaking ties between equal history scores.
+     * @param history  The history table, or null to use the ordering alone.
+     * @param pruning  The automaton of the redundant move sequences, or null to keep every move.
+     */
+    public Successors(Node parent, int ordering, MoveHistory history, MovePruning pruning) {
+        this(parent, ordering, null, null, history, pruning);
+    }
+
+    /**
+     * Constructs an iterator over the children of a node in the order of their f under a heuristic,
+     * ordered first by a history table and without the moves that an automaton of redundant move
+     * sequences rejects.
+     *
+     * @param parent    The node whose children are generated, with its f set.
+     * @param heuristic The heuristic of the search.
+     * @param goal      A 2D integer array representing the goal state configuration of the puzzle.
+     * @param history   The history table, or null to use the f order alone.
+     * @param pruning   The automaton of the redundant move sequences, or null to keep every move.
+     */
+    public Successors(Node parent, Heuristic heuristic, int[][] goal, MoveHistory history, MovePruning pruning) {
+        this(parent, BY_F, heuristic, goal, history, pruning);
+    }
+
+    private Successors(Node parent, int ordering, Heuristic heuristic, int[][] goal, MoveHistory history,
+                       MovePruning pruning) {
+        this.parent = parent;
+        this.pruning = pruning;
+        double[] estimate = new double[4];
+        int[] score = new int[4];
+        int numOfCol = parent.board[0].length;
+        int blank = parent.underscoreIndex[0] * numOfCol + parent.underscoreIndex[1];
+        int n = 0;
+        for (byte operator = Node.LEFT; operator <= Node.DOWN; operator++) {
+            int target = parent.canMove(operator);
+            if (target < 0) {
+                continue;
+            }
+            if (pruning != null && pruning.next(parent.pruneState, operator) == MovePruning.PRUNED) {
+                continue; // Rejected before the child is built
+            }
+            double key = 0;
+            boolean first = false;
+            Node child = null;
+            if (ordering == BY_H) {
+                Block moved = parent.board[target / numOfCol][target % numOfCol];
+                int goalPosition = moved.getValue() - 1;
+                int delta = distance(blank, goalPosition, numOfCol) - distance(target, goalPosition, numOfCol);
+                key = delta * moved.getPriceOfMove();
+            } else if (ordering == BY_F) {
+                double deltaF = heuristic.deltaF(parent, target);
+                if (Double.isNaN(deltaF)) {
+                    child = parent.Move(operator);
+                    child.h = heuristic.evaluate(child, goal);
+                    child.f = child.g + child.h;
+                    key = child.f;
+                    first = child.h == 0;
+                } else {
+                    key = parent.f + deltaF;
+                    Block moved = parent.board[target / numOfCol][target % numOfCol];
+                    first = key - parent.g - moved.getPriceOfMove() == 0;
+                }
+            }
+            int rank = first ? Integer.MAX_VALUE : history == null ? 0 : history.score(blank, operator);
+            // Insertion sort by decreasing score (the possible goals first), then increasing key, stable
+            // for equal ones
+            int i = n++;
+            while (i > 0 && (score[i - 1] < rank || (score[i - 1] == rank && estimate[i - 1] > key))) {
+                this.order[i] = this.order[i - 1];
+                this.built[i] = this.built[i - 1];
+                estimate[i] = estimate[i - 1];
+                score[i] = score[i - 1];
+                i--;
+            }
+            this.order[i] = operator;
+            this.built[i] = child;
+            estimate[i] = key;
+            score[i] = rank;
+        }
+        this.count = n;
+    }
+
+    private static int distance(int from, int to, int numOfCol) {
+        return Math.abs(from / numOfCol - to / numOfCol) + Math.abs(from % numOfCol - to % numOfCol);
+    }
+
+    /**
+     * Returns true if there are children left to build.
+     */
+    @Override
+    public boolean hasNext() {
+        return this.next < this.count;
+    }
+
+    /**
+     * Builds and returns the next child.
+     *
+     * @return The next child in the chosen order.
+     * @throws NoSuchElementException If all the children were returned.
+     */
+    @Override
+    public Node next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        byte operator = this.order[this.next];
+        Node child = this.built[this.next] != null ? this.built[this.next] : this.parent.Move(operator);
+        this.next++;
+        if (this.pruning != null) {
+            child.pruneState = this.pruning.next(this.parent.pruneState, operator);
+        }
+        return child;
+    }
+
+    /**
+     * Returns the number of children returned by next() so far.
+     */
+    public int taken() {
+        return this.next;
+    }
+
+    /**
+     * Returns true if the child that the last call to next() returned was built up front and has
+     * its h and f set already.
+     */
+    public boolean lastEvaluated() {
+        return this.built[this.next - 1] != null;
+    }
+
+    /**
+     * Returns the operator of the child that the last call to next() returned.
+     */
+    public byte lastOperator() {
+        return this.order[this.next - 1];
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The walking distance heuristic. The rows and the columns of the board are relaxed separately: a
+ * move up or down only changes which rows hold which blocks, and a move left or right only changes
+ * which columns do. The walking distance of the rows is the cheapest cost of bringing every block
+ * back to its goal row when only the number of blocks of every goal row and color in every row is
+ * known, and likewise for the columns (see {@link WalkingDistanceTable}). Every move changes only
+ * one of the two, by the price of the block that makes it, so their sum is admissible and
+ * consistent. It is at least the weighted Manhattan Distance and also accounts for blocks that
+ * block each other across lines, which the Linear Conflict misses.
+ *
+ * The ids of the table states of a node are kept in {@link Node#hParts}, together with the index
+ * of the pair of tables they belong to, since the tables depend on the puzzle and the same
+ * heuristic may evaluate nodes of different puzzles. A child generated by a move reuses the ids of
+ * its parent and only follows the move through the table of the dimension the move crosses, so
+ * evaluating a child costs two table lookups. When a table would be too large
+ * the weighted Manhattan Distance of that dimension is used instead.
+ *
+ * White blocks whose Manhattan Distance is larger than their remaining number of moves can never
+ * reach their goal position, so such states get an infinite value.
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+    // Indexes of the components kept in Node.hParts
+    private static final int ROW_ID = 0, COL_ID = 1, ROW_COST = 2, COL_COST = 3, DEAD = 4, TABLES = 5;
+
+    // The pairs of tables of the rows and of the columns met so far, indexed by Node.hParts[TABLES]
+    private final List<WalkingDistanceTable[]> tables = new ArrayList<>();
+
+    @Override
+    public double evaluate(Node node, int[][] goal) {
+        if (node.hParts == null) {
+            if (node.parentHParts != null && node.lastMove != Node.NONE) {
+                node.hParts = update(node);
+            } else {
+                node.hParts = evaluateAll(node);
+            }
+        }
+        int[] parts = node.hParts;
+        return parts[DEAD] != 0 ? Double.POSITIVE_INFINITY : parts[ROW_COST] + parts[COL_COST];
+    }
+
+    /**
+     * Calculates the components of a node from its parent's by following the last move.
+     */
+    private int[] update(Node node) {
+        int numOfCol = node.board[0].length;
+        int blankRow = node.underscoreIndex[0];
+        int blankCol = node.underscoreIndex[1];
+        // The moved block now stands where the parent had its empty space
+        int row = blankRow, col = blankCol;
+        switch (node.lastMove) {
+            case Node.LEFT:
+                col--;
+                break;
+            case Node.UP:
+                row--;
+                break;
+            case Node.RIGHT:
+                col++;
+                break;
+            default:
+                row++;
+                break;
+        }
+        Block moved = node.board[row][col];
+        int goalRow = (moved.getValue() - 1) / numOfCol;
+        int goalCol = (moved.getValue() - 1) % numOfCol;
+        int[] parts = node.parentHParts.clone();
+        WalkingDistanceTable rowTable = this.tables.get(parts[TABLES])[0];
+        WalkingDistanceTable colTable = this.tables.get(parts[TABLES])[1];
+        if (row != blankRow) {
+            parts[ROW_ID] = moveThrough(rowTable, parts[ROW_ID], blankRow > row, goalRow, moved.isWhite());
+            parts[ROW_COST] = parts[ROW_ID] >= 0 ? rowTable.distance(parts[ROW_ID])
+                    : parts[ROW_COST] + moved.getPriceOfMove() * (Math.abs(goalRow - row) - Math.abs(goalRow - blankRow));
+        } else {
+            parts[COL_ID] = moveThrough(colTable, parts[COL_ID], blankCol > col, goalCol, moved.isWhite());
+            parts[COL_COST] = parts[COL_ID] >= 0 ? colTable.distance(parts[COL_ID])
+                    : parts[COL_COST] + moved.getPriceOfMove() * (Math.abs(goalCol - col) - Math.abs(goalCol - blankCol));
+        }
+        // Only the moved block has fewer moves left
+        if (moved.isWhite() && moved.getNumOfMove() < Math.abs(goalRow - row) + Math.abs(goalCol - col)) {
+            parts[DEAD] = 1;
+        }
+        return parts;
+    }
+
+    /**
+     * Follows a move through a table, or returns -1 if the dimension has no table.
+     */
+    private static int moveThrough(WalkingDistanceTable table, int id, boolean forward, int goalLine, boolean white) {
+        return id < 0 ? -1 : table.next(id, forward, goalLine, white);
+    }
+
+    /**
+     * Calculates the components of a node from its board.
+     */
+    private int[] evaluateAll(Node node) {
+        int numOfRow = node.board.length;
+        int numOfCol = node.board[0].length;
+        int[] rowReds = new int[numOfRow], rowWhites = new int[numOfRow];
+        int[] colReds = new int[numOfCol], colWhites = new int[numOfCol];
+        char[] rowKey = new char[numOfRow * numOfRow * 2 + 1];
+        char[] colKey = new char[numOfCol * numOfCol * 2 + 1];
+        int redPrice = 0, whitePrice = 0;
+        int[] parts = new int[6];
+        for (int row = 0; row < numOfRow; row++) {
+            for (int col = 0; col < numOfCol; col++) {
+                Block block = node.board[row][col];
+                if (block.getValue() == 0) {
+                    rowKey[rowKey.length - 1] = (char) row;
+                    colKey[colKey.length - 1] = (char) col;
+                    continue;
+                }
+                int goalRow = (block.getValue() - 1) / numOfCol;
+                int goalCol = (block.getValue() - 1) % numOfCol;
+                int color = block.isWhite() ? 1 : 0;
+                if (block.isWhite()) {
+                    rowWhites[goalRow]++;
+                    colWhites[goalCol]++;
+                    whitePrice = block.getPriceOfMove();
+                    if (block.getNumOfMove() < Math.abs(goalRow - row) + Math.abs(goalCol - col)) {
+                        parts[DEAD] = 1;
+                    }
+                } else {
+                    rowReds[goalRow]++;
+                    colReds[goalCol]++;
+                    redPrice = block.getPriceOfMove();
+                }
+                rowKey[(row * numOfRow + goalRow) * 2 + color]++;
+                colKey[(col * numOfCol + goalCol) * 2 + color]++;
+                parts[ROW_COST] += block.getPriceOfMove() * Math.abs(goalRow - row);
+                parts[COL_COST] += block.getPriceOfMove() * Math.abs(goalCol - col);
+            }
+        }
+        WalkingDistanceTable rowTable = WalkingDistanceTable.forLines(numOfRow, rowReds, rowWhites, redPrice, whitePrice);
+        WalkingDistanceTable colTable = WalkingDistanceTable.forLines(numOfCol, colReds, colWhites, redPrice, whitePrice);
+        parts[TABLES] = indexOf(rowTable, colTable);
+        parts[ROW_ID] = rowTable.available ? rowTable.find(rowKey) : -1;
+        parts[COL_ID] = colTable.available ? colTable.find(colKey) : -1;
+        if (parts[ROW_ID] >= 0) {
+            parts[ROW_COST] = rowTable.distance(parts[ROW_ID]);
+        }
+        if (parts[COL_ID] >= 0) {
+            parts[COL_COST] = colTable.distance(parts[COL_ID]);
+        }
+        return parts;
+    }
+
+    /**
+     * Returns the index of a pair of tables in the list of pairs met so far, adding it if it is new.
+     * The tables are shared per puzzle (see WalkingDistanceTable.forLines), so they compare by identity.
+     */
+    private int indexOf(WalkingDistanceTable rowTable, WalkingDistanceTable colTable) {
+        for (int i = 0; i < this.tables.size(); i++) {
+            WalkingDistanceTable[] pair = this.tables.get(i);
+            if (pair[0] == rowTable && pair[1] == colTable) {
+                return i;
+            }
+        }
+        this.tables.add(new WalkingDistanceTable[]{rowTable, colTable});
+        return this.tables.size() - 1;
+    }
+}
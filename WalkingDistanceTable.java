@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The walking distance table of one dimension of the board (the rows or the columns). A state of
+ * the table only records, for every line, how many blocks of every goal line and color it holds,
+ * and which line holds the empty space. A move across the lines takes one block from the line of
+ * the empty space's new position to its old line, while a move along a line does not change the
+ * table state at all.
+ *
+ * Every table state gets an id, and the table holds for every id the cheapest cost of reaching the
+ * goal table state (moving a red block costs its price, 30, and a white block costs its price, 1)
+ * and the id reached by every move across the lines, so a search can follow its moves through the
+ * table without rebuilding the table state. The distances are found once with Dijkstra's algorithm
+ * from the goal table state and the tables are shared by every search on the same dimension.
+ */
+public class WalkingDistanceTable {
+    // Maximal number of table states; larger tables are not built
+    private static final int MAX_STATES = 1 << 21;
+    // Built tables by signature, see forLines
+    private static final Map<String, WalkingDistanceTable> TABLES = new ConcurrentHashMap<>();
+
+    // Number of lines of the dimension
+    final int numOfLines;
+    // True if the table was built, false if it has more than MAX_STATES states
+    final boolean available;
+    // Table state ids by table state key
+    private final Map<String, Integer> ids;
+    // Cost to reach the goal table state, indexed by id
+    private final int[] distance;
+    // Next table state, indexed by id * stride + direction * numOfLines * 2 + goalLine * 2 + color
+    private final int[] next;
+    // Number of entries of next per table state
+    private final int stride;
+
+    /**
+     * Returns the table of a dimension, building it on first use.
+     *
+     * @param numOfLines The number of lines of the dimension.
+     * @param reds       The number of red blocks whose goal is each line.
+     * @param whites     The number of white blocks whose goal is each line.
+     * @param redPrice   The price of moving a red block.
+     * @param whitePrice The price of moving a white block.
+     * @return The table; check available before using it.
+     */
+    static WalkingDistanceTable forLines(int numOfLines, int[] reds, int[] whites, int redPrice, int whitePrice) {
+        String signature = numOfLines + ":" + Arrays.toString(reds) + Arrays.toString(whites) + redPrice + ":" + whitePrice;
+        return TABLES.computeIfAbsent(signature, k -> new WalkingDistanceTable(numOfLines, reds, whites, redPrice, whitePrice));
+    }
+
+    /**
+     * Builds the table of a dimension with Dijkstra's algorithm from the goal table state, in
+     * which every line holds its own blocks and the empty space is in the last line.
+     */
+    private WalkingDistanceTable(int numOfLines, int[] reds, int[] whites, int redPrice, int whitePrice) {
+        this.numOfLines = numOfLines;
+        this.stride = 2 * numOfLines * 2;
+        int[] price = {redPrice, whitePrice};
+        int blankSlot = numOfLines * numOfLines * 2;
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<char[]> states = new ArrayList<>();
+        int[] distance = new int[1024];
+        int[] next = new int[1024 * this.stride];
+        char[] goal = new char[blankSlot + 1];
+        for (int line = 0; line < numOfLines; line++) {
+            goal[(line * numOfLines + line) * 2] = (char) reds[line];
+            goal[(line * numOfLines + line) * 2 + 1] = (char) whites[line];
+        }
+        goal[blankSlot] = (char) (numOfLines - 1);
+        ids.put(new String(goal), 0);
+        states.add(goal);
+        Arrays.fill(next, -1);
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add(0L);
+
+        boolean complete = true;
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int id = (int) entry;
+            int cost = (int) (entry >>> 32);
+            if (cost > distance[id]) {
+                continue;
+            }
+            char[] state = states.get(id);
+            int blank = state[blankSlot];
+            for (int direction = 0; direction < 2; direction++) {
+                int from = direction == 0 ? blank - 1 : blank + 1;
+                if (from < 0 || from >= numOfLines) {
+                    continue;
+                }
+                for (int goalLine = 0; goalLine < numOfLines; goalLine++) {
+                    for (int color = 0; color < 2; color++) {
+                        if (state[(from * numOfLines + goalLine) * 2 + color] == 0) {
+                            continue;
+                        }
+                        // The block moves from the new line of the empty space into its old line
+                        char[] child = state.clone();
+                        child[(from * numOfLines + goalLine) * 2 + color]--;
+                        child[(blank * numOfLines + goalLine) * 2 + color]++;
+                        child[blankSlot] = (char) from;
+                        String key = new String(child);
+                        Integer childId = ids.get(key);
+                        if (childId == null) {
+                            if (states.size() == MAX_STATES) {
+                                complete = false;
+                                break;
+                            }
+                            childId = states.size();
+                            ids.put(key, childId);
+                            states.add(child);
+                            if (childId == distance.length) {
+                                distance = Arrays.copyOf(distance, childId * 2);
+                                next = Arrays.copyOf(next, childId * 2 * this.stride);
+                                Arrays.fill(next, childId * this.stride, next.length, -1);
+                            }
+                            distance[childId] = Integer.MAX_VALUE;
+                        }
+                        next[id * this.stride + direction * numOfLines * 2 + goalLine * 2 + color] = childId;
+                        int childCost = cost + price[color];
+                        if (childCost < distance[childId]) {
+                            distance[childId] = childCost;
+                            queue.add(((long) childCost << 32) | childId);
+                        }
+                    }
+                }
+            }
+            if (!complete) {
+                break;
+            }
+        }
+        this.available = complete;
+        this.ids = complete ? ids : null;
+        this.distance = complete ? distance : null;
+        this.next = complete ? next : null;
+    }
+
+    /**
+     * Returns the id of a table state.
+     *
+     * @param key The table state: for every line and goal line the number of red and of white
+     *            blocks, at index (line * numOfLines + goalLine) * 2 + color, followed by the line
+     *            of the empty space.
+     * @return The id of the table state, or -1 if it is not in the table.
+     */
+    int find(char[] key) {
+        Integer id = this.ids.get(new String(key));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the cost to reach the goal table state from the table state with the given id.
+     */
+    int distance(int id) {
+        return this.distance[id];
+    }
+
+    /**
+     * Returns the table state reached by moving the empty space across the lines.
+     *
+     * @param id       The id of the current table state.
+     * @param forward  true if the empty space moves to the next line, false for the previous one.
+     * @param goalLine The goal line of the block that moves into the empty space.
+     * @param white    true if that block is white.
+     * @return The id of the new table state.
+     */
+    int next(int id, boolean forward, int goalLine, boolean white) {
+        return this.next[id * this.stride + (forward ? this.numOfLines * 2 : 0) + goalLine * 2 + (white ? 1 : 0)];
+    }
+}
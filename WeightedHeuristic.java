@@ -0,0 +1,143 @@
+/**
+ * A heuristic that prices every remaining move by the block that makes it. Moving a red block costs
+ * 30 and moving a white block costs 1, so counting every Manhattan step as 1 underestimates the
+ * remaining cost of red blocks by a factor of 30. This heuristic multiplies the Manhattan Distance of
+ * every block by its price of move and, optionally, adds a weighted Linear Conflict term.
+ *
+ * White blocks can only move a limited number of times. A white block whose Manhattan Distance is
+ * larger than its remaining number of moves can never reach its goal position, so such states get
+ * an infinite value and are pruned by every algorithm.
+ *
+ * Both variants are admissible and consistent: a move changes the Manhattan Distance of exactly one
+ * block by one, and its cost is the price of that block.
+ */
+public class WeightedHeuristic implements Heuristic {
+    // True if the weighted Linear Conflict term is added to the weighted Manhattan Distance
+    private final boolean linearConflict;
+
+    /**
+     * Constructs a weighted heuristic.
+     *
+     * @param linearConflict true to add the weighted Linear Conflict term.
+     */
+    public WeightedHeuristic(boolean linearConflict) {
+        this.linearConflict = linearConflict;
+    }
+
+    /**
+     * Returns true if the weighted Linear Conflict term is added to the weighted Manhattan Distance.
+     */
+    boolean hasLinearConflict() {
+        return this.linearConflict;
+    }
+
+    @Override
+    public double evaluate(Node node, int[][] goal) {
+        int numOfRow = node.board.length;
+        int numOfCol = node.board[0].length;
+        double manhattanDistance = 0;
+        for (int row = 0; row < numOfRow; row++) {
+            for (int col = 0; col < numOfCol; col++) {
+                Block block = node.board[row][col];
+                if (block.getValue() != 0) {
+                    int goalRow = (block.getValue() - 1) / numOfCol;
+                    int goalCol = (block.getValue() - 1) % numOfCol;
+                    int distance = Math.abs(goalRow - row) + Math.abs(goalCol - col);
+                    // A white block without enough moves left can never reach its goal position
+                    if (block.isWhite() && block.getNumOfMove() < distance) {
+                        return Double.POSITIVE_INFINITY;
+                    }
+                    manhattanDistance += (double) distance * block.getPriceOfMove();
+                }
+            }
+        }
+        if (!this.linearConflict) {
+            return manhattanDistance;
+        }
+        double conflict = 0;
+        for (int row = 0; row < numOfRow; row++) {
+            conflict += lineConflict(node, row, 0, 0, 1, numOfCol, true);
+        }
+        for (int col = 0; col < numOfCol; col++) {
+            conflict += lineConflict(node, 0, col, 1, 0, numOfRow, false);
+        }
+        return manhattanDistance + conflict;
+    }
+
+    /**
+     * Without the Linear Conflict term, a move changes the value only through the Manhattan Distance
+     * of the moved block, so f changes by the price of the block times (1 + the change of its
+     * distance): either not at all or by twice the price.
+     */
+    @Override
+    public double deltaF(Node node, int target) {
+        if (this.linearConflict) {
+            return Double.NaN;
+        }
+        int numOfCol = node.board[0].length;
+        int row = target / numOfCol;
+        int col = target % numOfCol;
+        Block block = node.board[row][col];
+        int goalRow = (block.getValue() - 1) / numOfCol;
+        int goalCol = (block.getValue() - 1) % numOfCol;
+        int before = Math.abs(goalRow - row) + Math.abs(goalCol - col);
+        int after = Math.abs(goalRow - node.underscoreIndex[0]) + Math.abs(goalCol - node.underscoreIndex[1]);
+        if (block.isWhite() && block.getNumOfMove() - 1 < after) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (double) block.getPriceOfMove() * (1 + after - before);
+    }
+
+    /**
+     * Calculates the weighted Linear Conflict of one row or column. The blocks of the line that belong
+     * to it in the goal state must end up in goal order, so every block outside the heaviest subset
+     * that is already in order has to leave the line and come back, which costs two of its moves that
+     * the Manhattan Distance does not count.
+     *
+     * @param node     The node whose board is examined.
+     * @param row      The row of the first cell of the line.
+     * @param col      The column of the first cell of the line.
+     * @param rowStep  The row increment between consecutive cells of the line.
+     * @param colStep  The column increment between consecutive cells of the line.
+     * @param length   The number of cells in the line.
+     * @param isRow    true if the line is a row, false if it is a column.
+     * @return The extra cost of the conflicts in the line.
+     */
+    private static double lineConflict(Node node, int row, int col, int rowStep, int colStep, int length, boolean isRow) {
+        int numOfCol = node.board[0].length;
+        int line = isRow ? row : col;
+        int[] goalIndex = new int[length];
+        double[] price = new double[length];
+        int count = 0;
+        double total = 0;
+        for (int i = 0; i < length; i++, row += rowStep, col += colStep) {
+            Block block = node.board[row][col];
+            if (block.getValue() != 0) {
+                int goalRow = (block.getValue() - 1) / numOfCol;
+                int goalCol = (block.getValue() - 1) % numOfCol;
+                if ((isRow ? goalRow : goalCol) == line) {
+                    goalIndex[count] = isRow ? goalCol : goalRow;
+                    price[count] = block.getPriceOfMove();
+                    total += price[count];
+                    count++;
+                }
+            }
+        }
+        if (count < 2) {
+            return 0;
+        }
+        // Heaviest subsequence of blocks already in goal order
+        double[] best = new double[count];
+        double kept = 0;
+        for (int i = 0; i < count; i++) {
+            best[i] = price[i];
+            for (int j = 0; j < i; j++) {
+                if (goalIndex[j] < goalIndex[i]) {
+                    best[i] = Math.max(best[i], best[j] + price[i]);
+                }
+            }
+            kept = Math.max(kept, best[i]);
+        }
+        return 2 * (total - kept);
+    }
+}
@@ -0,0 +1,58 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API version of {@link BatchHeuristic}. Eight cells of a packed state are loaded at
+ * once, widened to ints, turned into table indexes (value * cells + position) lane-wise, and their
+ * weighted distances are gathered from the table and summed in one vector; the cells that do not
+ * fill a whole vector are added by the scalar loop.
+ *
+ * The Vector API is still incubating, so this class is kept out of the main source directory and
+ * is compiled and run with --add-modules jdk.incubator.vector (see the README).
+ * {@link BatchHeuristic#create(StateCodec)} loads it when it is present.
+ */
+public class VectorBatchHeuristic extends BatchHeuristic {
+    // Eight block values of a packed state
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    // The same eight cells as ints
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+
+    // The lane numbers 0..7, added to the position of the first cell of a vector
+    private final IntVector lanes = IntVector.zero(INTS).addIndex(1);
+    // The table indexes of one vector of cells, used by the gather
+    private final int[] index = new int[INTS.length()];
+
+    /**
+     * Constructs a Vector API evaluator for states packed by the given codec.
+     *
+     * @param codec The codec that packed the states.
+     */
+    public VectorBatchHeuristic(StateCodec codec) {
+        super(codec);
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    int weightedDistance(byte[] states, int offset) {
+        IntVector sum = IntVector.zero(INTS);
+        int upper = INTS.loopBound(this.cells);
+        int position = 0;
+        for (; position < upper; position += INTS.length()) {
+            IntVector values = ((IntVector) ByteVector.fromArray(BYTES, states, offset + position)
+                    .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+            values.mul(this.cells).add(this.lanes).add(position).intoArray(this.index, 0);
+            sum = sum.add(IntVector.fromArray(INTS, this.distance, 0, this.index, 0));
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for (; position < this.cells; position++) {
+            total += this.distance[(states[offset + position] & 0xFF) * this.cells + position];
+        }
+        return total;
+    }
+}